@@ -0,0 +1,400 @@
+package com.lqy.java.date;
+
+import java.text.ParseException;
+import java.text.ParsePosition;
+import java.text.SimpleDateFormat;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeFormatterBuilder;
+import java.time.format.ResolverStyle;
+import java.time.temporal.ChronoField;
+import java.time.temporal.TemporalAccessor;
+import java.util.Date;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按 (格式, 时区) 缓存的 DateTimeFormatter
+ * bounded cache of compiled DateTimeFormatters keyed by pattern and zone
+ * <p>
+ * DateTimeFormatter 不可变、线程安全，编译一次后在所有线程间共享，没有 SimpleDateFormat 的 Calendar 状态。
+ * 结果与 SimpleDateFormat 一致：
+ * <ul>
+ * <li>只有数字字段（yyyy、M/MM、d/dd、H/HH、m/mm、s/ss、SSS）和字面量组成的格式走 java.time，
+ * 其他格式（文本月份、星期、时区、两位年份等）仍使用 SimpleDateFormat；</li>
+ * <li>解析时缺少的字段取默认值（1970 年 1 月 1 日 00:00:00.000），文本末尾多余的非数字内容被忽略；</li>
+ * <li>java.time 严格解析失败的文本（单个数字的月份、2 月 30 日、24 点等）交给宽松的 SimpleDateFormat 重新解析；</li>
+ * <li>时区偏移取自 TimeZone 本身（{@link EpochDates} 的偏移表），而不是 java.time 的 ZoneRules：
+ * 两者在 1900 年之前（地方平时）等时间并不一致。夏令时跳过的本地时间按变化前的偏移计算，重叠的取后一个偏移，与 Calendar 相同；</li>
+ * <li>偏移表范围（1900 ~ 2100 年）以外的时间、偏移表与 TimeZone 不一致的时区使用 SimpleDateFormat。</li>
+ * </ul>
+ * 时区可以是 ZoneId 或 TimeZone；DateUtils 的默认时区版本传入 TimeZone.getDefault()，保留自定义 TimeZone 的规则。
+ * 缓存超过上限时清空。
+ */
+public final class DateTimeFormatterCache {
+
+    private static final int MAX_SIZE = 512;
+
+    private static final Map<Key, Entry> CACHE = new ConcurrentHashMap<>();
+
+    private DateTimeFormatterCache() {
+    }
+
+    /**
+     * 格式化时间戳
+     * @param epochMillis 毫秒时间戳
+     * @param pattern     SimpleDateFormat 格式
+     * @param zone        时区
+     * @return 格式化后的文本
+     */
+    public static String format(long epochMillis, String pattern, ZoneId zone) {
+        return format(epochMillis, entry(pattern, zone));
+    }
+
+    /**
+     * 按 TimeZone 格式化时间戳，与 SimpleDateFormat.setTimeZone(timeZone) 的结果相同；
+     * 不在时区数据库中的自定义时区使用 SimpleDateFormat
+     * @param epochMillis 毫秒时间戳
+     * @param pattern     SimpleDateFormat 格式
+     * @param timeZone    时区，如 TimeZone.getDefault()
+     * @return 格式化后的文本
+     */
+    public static String format(long epochMillis, String pattern, TimeZone timeZone) {
+        return format(epochMillis, entry(pattern, timeZone));
+    }
+
+    private static String format(long epochMillis, Entry entry) {
+        if (entry.formatter != null && entry.dates.fast(epochMillis)) {
+            long local = epochMillis + entry.dates.offset(epochMillis);
+            return entry.formatter.format(LocalDateTime.ofEpochSecond(Math.floorDiv(local, 1000L),
+                    (int) Math.floorMod(local, 1000L) * 1_000_000, ZoneOffset.UTC));
+        }
+        return entry.legacy().format(new Date(epochMillis));
+    }
+
+    /**
+     * 解析为毫秒时间戳
+     * @param text    文本
+     * @param pattern SimpleDateFormat 格式
+     * @param zone    时区
+     * @return 毫秒时间戳
+     * @throws ParseException 无法解析
+     */
+    public static long parse(String text, String pattern, ZoneId zone) throws ParseException {
+        Objects.requireNonNull(text, "text");
+        return parse(text, entry(pattern, zone));
+    }
+
+    /**
+     * 按 TimeZone 解析为毫秒时间戳，与 SimpleDateFormat.setTimeZone(timeZone) 的结果相同
+     * @param text     文本
+     * @param pattern  SimpleDateFormat 格式
+     * @param timeZone 时区，如 TimeZone.getDefault()
+     * @return 毫秒时间戳
+     * @throws ParseException 无法解析
+     */
+    public static long parse(String text, String pattern, TimeZone timeZone) throws ParseException {
+        Objects.requireNonNull(text, "text");
+        return parse(text, entry(pattern, timeZone));
+    }
+
+    private static long parse(String text, Entry entry) throws ParseException {
+        if (entry.formatter != null) {
+            try {
+                ParsePosition position = new ParsePosition(0);
+                TemporalAccessor parsed = entry.formatter.parse(text, position);
+                LocalDateTime local = LocalDateTime.from(parsed);
+                // SimpleDateFormat 的最后一个数字字段会继续读取后面的数字，这种文本交给 SimpleDateFormat
+                boolean digitFollows = position.getIndex() < text.length() && Character.isDigit(text.charAt(position.getIndex()));
+                if (!digitFollows && local.getYear() >= 1900 && local.getYear() < 2100) {
+                    long localMillis = local.toEpochSecond(ZoneOffset.UTC) * 1000L + local.getNano() / 1_000_000;
+                    if (entry.dates.fast(localMillis)) {
+                        return entry.dates.toUtc(localMillis);
+                    }
+                }
+            } catch (DateTimeException e) {
+                // 不是规范格式，交给宽松的 SimpleDateFormat
+            }
+        }
+        return entry.legacy().parse(text).getTime();
+    }
+
+    /**
+     * 获取编译后的 DateTimeFormatter
+     * @param pattern SimpleDateFormat 格式
+     * @param zone    时区
+     * @return 字段含义与 SimpleDateFormat 一致的 DateTimeFormatter，格式无法等价转换时返回 null；
+     * 它使用 java.time 的时区规则，1900 年之前的偏移可能与 SimpleDateFormat 不同
+     */
+    public static DateTimeFormatter get(String pattern, ZoneId zone) {
+        return entry(pattern, zone).formatter;
+    }
+
+    /**
+     * 缓存中的条目数
+     */
+    public static int size() {
+        return CACHE.size();
+    }
+
+    private static Entry entry(String pattern, ZoneId zone) {
+        Entry entry = CACHE.get(new Key(pattern, zone));
+        if (entry == null) {
+            entry = put(new Key(pattern, zone), new Entry(pattern, compile(pattern, zone), TimeZone.getTimeZone(zone),
+                    EpochDates.of(zone)));
+        }
+        return entry;
+    }
+
+    /**
+     * TimeZone 按 equals（ID 与规则）区分，缓存中保存副本
+     */
+    private static Entry entry(String pattern, TimeZone timeZone) {
+        Entry entry = CACHE.get(new Key(pattern, timeZone));
+        if (entry == null) {
+            TimeZone copy = (TimeZone) timeZone.clone();
+            ZoneId zone = toZoneId(copy);
+            // 无法对应到 ZoneId 的时区只使用 SimpleDateFormat
+            DateTimeFormatter formatter = zone == null ? null : compile(pattern, zone);
+            entry = put(new Key(pattern, copy), new Entry(pattern, formatter, copy, EpochDates.of(copy)));
+        }
+        return entry;
+    }
+
+    private static Entry put(Key key, Entry entry) {
+        if (CACHE.size() >= MAX_SIZE) {
+            CACHE.clear();
+        }
+        CACHE.put(key, entry);
+        return entry;
+    }
+
+    private static ZoneId toZoneId(TimeZone timeZone) {
+        try {
+            return timeZone.toZoneId();
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 把 SimpleDateFormat 格式转换为含义相同的 DateTimeFormatter，有无法等价转换的字母时返回 null
+     */
+    static DateTimeFormatter compile(String pattern, ZoneId zone) {
+        // 格式非法时与原实现一样抛出 IllegalArgumentException
+        new SimpleDateFormat(pattern);
+        StringBuilder converted = new StringBuilder(pattern.length() + 4);
+        boolean quoted = false;
+        for (int i = 0; i < pattern.length(); ) {
+            char c = pattern.charAt(i);
+            if (c == '\'') {
+                quoted = !quoted;
+                converted.append(c);
+                i++;
+                continue;
+            }
+            if (quoted || !isLetter(c)) {
+                if (!quoted && "[]{}#".indexOf(c) >= 0) {
+                    return null;
+                }
+                converted.append(c);
+                i++;
+                continue;
+            }
+            int count = 1;
+            while (i + count < pattern.length() && pattern.charAt(i + count) == c) {
+                count++;
+            }
+            switch (c) {
+                case 'y':
+                    if (count != 4) {
+                        return null;
+                    }
+                    // SimpleDateFormat 的 y 为公元年份，对应 java.time 的 u
+                    converted.append("uuuu");
+                    break;
+                case 'M':
+                case 'd':
+                case 'H':
+                case 'm':
+                case 's':
+                    if (count > 2) {
+                        return null;
+                    }
+                    appendRepeated(converted, c, count);
+                    break;
+                case 'S':
+                    if (count != 3) {
+                        return null;
+                    }
+                    converted.append("SSS");
+                    break;
+                default:
+                    return null;
+            }
+            i += count;
+        }
+        return new DateTimeFormatterBuilder()
+                .appendPattern(converted.toString())
+                .parseDefaulting(ChronoField.YEAR, 1970)
+                .parseDefaulting(ChronoField.MONTH_OF_YEAR, 1)
+                .parseDefaulting(ChronoField.DAY_OF_MONTH, 1)
+                .parseDefaulting(ChronoField.HOUR_OF_DAY, 0)
+                .parseDefaulting(ChronoField.MINUTE_OF_HOUR, 0)
+                .parseDefaulting(ChronoField.SECOND_OF_MINUTE, 0)
+                .parseDefaulting(ChronoField.NANO_OF_SECOND, 0)
+                .toFormatter()
+                .withResolverStyle(ResolverStyle.STRICT)
+                .withZone(zone);
+    }
+
+    private static boolean isLetter(char c) {
+        return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z';
+    }
+
+    private static void appendRepeated(StringBuilder builder, char c, int count) {
+        for (int i = 0; i < count; i++) {
+            builder.append(c);
+        }
+    }
+
+    private static final class Key {
+        private final String pattern;
+        /**
+         * ZoneId 或 TimeZone
+         */
+        private final Object zone;
+
+        private Key(String pattern, Object zone) {
+            this.pattern = Objects.requireNonNull(pattern, "pattern");
+            this.zone = Objects.requireNonNull(zone, "zone");
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return pattern.equals(other.pattern) && zone.equals(other.zone);
+        }
+
+        @Override
+        public int hashCode() {
+            return pattern.hashCode() * 31 + zone.hashCode();
+        }
+    }
+
+    private static final class Entry {
+        private final String pattern;
+
+        /**
+         * 为 null 时使用 SimpleDateFormat
+         */
+        private final DateTimeFormatter formatter;
+
+        private final TimeZone timeZone;
+
+        /**
+         * 与 TimeZone 一致的偏移表
+         */
+        private final EpochDates dates;
+
+        private Entry(String pattern, DateTimeFormatter formatter, TimeZone timeZone, EpochDates dates) {
+            this.pattern = pattern;
+            this.formatter = formatter;
+            this.timeZone = timeZone;
+            this.dates = dates;
+        }
+
+        private SimpleDateFormat legacy() {
+            SimpleDateFormat format = new SimpleDateFormat(pattern);
+            format.setTimeZone((TimeZone) timeZone.clone());
+            return format;
+        }
+    }
+
+    /**
+     * 原实现：默认格式使用 ThreadLocal 的 SimpleDateFormat，其他格式每次新建
+     */
+    private static final ThreadLocal<SimpleDateFormat> LEGACY_DATETIME_FORMATTER =
+            ThreadLocal.withInitial(() -> new SimpleDateFormat(DateUtils.DEFAULT_DATETIME_FORMAT));
+
+    private interface Operation {
+        void run(int i) throws ParseException;
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        String custom = "yyyy/MM/dd HH:mm:ss.SSS";
+        long base = 1_700_000_000_000L;
+        ZoneId zone = ZoneId.systemDefault();
+        String text = DateUtils.formatDateTime(new Date(base));
+        String customText = new SimpleDateFormat(custom).format(new Date(base));
+        System.out.println("same format: " + text.equals(LEGACY_DATETIME_FORMATTER.get().format(new Date(base)))
+                + ", same custom: " + customText.equals(format(base, custom, zone)));
+
+        int[] threadCounts = {1, 8, 32};
+        int iterations = 200_000;
+        for (int round = 0; round < 2; round++) {
+            for (int threads : threadCounts) {
+                boolean print = round > 0;
+                run(print, "legacy format " + DateUtils.DEFAULT_DATETIME_FORMAT, threads, iterations,
+                        i -> LEGACY_DATETIME_FORMATTER.get().format(new Date(base + i * 1000L)));
+                run(print, "cached format " + DateUtils.DEFAULT_DATETIME_FORMAT, threads, iterations,
+                        i -> format(base + i * 1000L, DateUtils.DEFAULT_DATETIME_FORMAT, zone));
+                run(print, "legacy parse  " + DateUtils.DEFAULT_DATETIME_FORMAT, threads, iterations,
+                        i -> LEGACY_DATETIME_FORMATTER.get().parse(text));
+                run(print, "cached parse  " + DateUtils.DEFAULT_DATETIME_FORMAT, threads, iterations,
+                        i -> parse(text, DateUtils.DEFAULT_DATETIME_FORMAT, zone));
+                run(print, "legacy format " + custom, threads, iterations,
+                        i -> new SimpleDateFormat(custom).format(new Date(base + i)));
+                run(print, "cached format " + custom, threads, iterations, i -> format(base + i, custom, zone));
+                run(print, "legacy parse  " + custom, threads, iterations, i -> new SimpleDateFormat(custom).parse(customText));
+                run(print, "cached parse  " + custom, threads, iterations, i -> parse(customText, custom, zone));
+            }
+        }
+    }
+
+    /**
+     * threads 个线程各执行 iterations 次，输出总吞吐量
+     */
+    private static void run(boolean print, String name, int threads, int iterations, Operation operation)
+            throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch done = new CountDownLatch(threads);
+        LongAdder failures = new LongAdder();
+        int perThread = Math.max(1, iterations / threads);
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            executor.execute(() -> {
+                try {
+                    for (int i = 0; i < perThread; i++) {
+                        operation.run(i);
+                    }
+                } catch (ParseException e) {
+                    failures.increment();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        long nanos = System.nanoTime() - start;
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+        if (print) {
+            System.out.printf("%-40s %2d threads: %,12.0f ops/s%s%n", name, threads,
+                    (double) perThread * threads * 1e9 / nanos, failures.sum() > 0 ? " (failed)" : "");
+        }
+    }
+}
@@ -1,9 +1,10 @@
 package com.lqy.java.date;
 
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
-import java.util.Calendar;
+import java.time.Instant;
+import java.time.ZoneId;
 import java.util.Date;
+import java.util.TimeZone;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -14,13 +15,6 @@ public class DateUtils {
     public static final String DEFAULT_DATE_FORMAT = "yyyy-MM-dd";
     public static final String DEFAULT_DATETIME_FORMAT = "yyyy-MM-dd HH:mm:ss";
 
-    // 由于 SimpleDateFormat 是非线程安全的，如果在多线程环境下使用同一个实例，可能会导致问题。
-    // 通过创建一个 ThreadLocal 的 SimpleDateFormat 来解决这个问题。
-    // Since SimpleDateFormat is not thread safe, if the same instance is used in a multi-threaded environment, it may cause problems.
-    // Solve this problem by creating a ThreadLocal of SimpleDateFormat.
-    private static final ThreadLocal<SimpleDateFormat> DEFAULT_DATE_FORMATTER = ThreadLocal.withInitial(() -> new SimpleDateFormat(DEFAULT_DATE_FORMAT));
-    private static final ThreadLocal<SimpleDateFormat> DEFAULT_DATETIME_FORMATTER = ThreadLocal.withInitial(() -> new SimpleDateFormat(DEFAULT_DATETIME_FORMAT));
-
     // 格式化日期
     // Format date
     public static String formatDate(Date date) {
@@ -33,22 +27,34 @@ public class DateUtils {
         return formatDate(date, DEFAULT_DATETIME_FORMAT);
     }
 
-    // 自定义格式化
+    // 自定义格式化，使用缓存的 DateTimeFormatter（见 DateTimeFormatterCache），不再每次新建 SimpleDateFormat
     // Custom format
     public static String formatDate(Date date, String format) {
-        return getThreadSafeFormatter(format).format(date);
+        return formatDate(date.getTime(), format);
+    }
+
+    // 格式化毫秒时间戳，使用默认 TimeZone 本身的规则（与 SimpleDateFormat 相同）
+    // Format epoch millis
+    public static String formatDate(long epochMillis, String format) {
+        return DateTimeFormatterCache.format(epochMillis, format, TimeZone.getDefault());
     }
 
-    // 获取线程安全的 SimpleDateFormat
-    // Get thread-safe SimpleDateFormat
-    private static SimpleDateFormat getThreadSafeFormatter(String format) {
-        if (DEFAULT_DATE_FORMAT.equals(format)) {
-            return DEFAULT_DATE_FORMATTER.get();
-        } else if (DEFAULT_DATETIME_FORMAT.equals(format)) {
-            return DEFAULT_DATETIME_FORMATTER.get();
-        } else {
-            return new SimpleDateFormat(format);
-        }
+    // 按指定时区格式化毫秒时间戳
+    // Format epoch millis in the given zone
+    public static String formatDate(long epochMillis, String format, ZoneId zone) {
+        return DateTimeFormatterCache.format(epochMillis, format, zone);
+    }
+
+    // 格式化 Instant
+    // Format instant
+    public static String formatDate(Instant instant, String format) {
+        return formatDate(instant.toEpochMilli(), format);
+    }
+
+    // 格式化毫秒时间戳为日期时间
+    // Format epoch millis as date and time
+    public static String formatDateTime(long epochMillis) {
+        return formatDate(epochMillis, DEFAULT_DATETIME_FORMAT);
     }
 
     // 解析日期字符串
@@ -63,10 +69,40 @@ public class DateUtils {
         return parseDate(dateTimeStr, DEFAULT_DATETIME_FORMAT);
     }
 
-    // 自定义解析
+    // 自定义解析，缺少的字段取默认值（如只有日期时为当天 00:00:00）
     // Custom parse
     public static Date parseDate(String dateStr, String format) throws ParseException {
-        return getThreadSafeFormatter(format).parse(dateStr);
+        return new Date(parseToEpochMillis(dateStr, format));
+    }
+
+    // 解析为毫秒时间戳，使用默认 TimeZone 本身的规则（与 SimpleDateFormat 相同）
+    // Parse to epoch millis
+    public static long parseToEpochMillis(String dateStr, String format) throws ParseException {
+        return DateTimeFormatterCache.parse(dateStr, format, TimeZone.getDefault());
+    }
+
+    // 按指定时区解析为毫秒时间戳
+    // Parse to epoch millis in the given zone
+    public static long parseToEpochMillis(String dateStr, String format, ZoneId zone) throws ParseException {
+        return DateTimeFormatterCache.parse(dateStr, format, zone);
+    }
+
+    // 解析为 Instant
+    // Parse to instant
+    public static Instant parseToInstant(String dateStr, String format) throws ParseException {
+        return Instant.ofEpochMilli(parseToEpochMillis(dateStr, format));
+    }
+
+    // 批量格式化时间戳列为 yyyy-MM-dd HH:mm:ss，并行处理并缓存日期前缀（见 TimestampColumns）
+    // Format a column of epoch millis as date and time
+    public static String[] formatDateTimes(long[] epochMillis) {
+        return TimestampColumns.formatDateTime(epochMillis);
+    }
+
+    // 批量解析 yyyy-MM-dd HH:mm:ss 文本列
+    // Parse a column of date and time strings
+    public static long[] parseDateTimes(String[] dateTimeStrs) throws ParseException {
+        return TimestampColumns.parseDateTime(dateTimeStrs);
     }
 
     // 计算两个日期之间相差的天数
@@ -101,37 +137,53 @@ public class DateUtils {
     // 在给定日期的基础上增加天数
     // Add days to the given date
     public static Date addDays(Date date, int days) {
-        Calendar calendar = Calendar.getInstance();
-        calendar.setTime(date);
-        calendar.add(Calendar.DATE, days);
-        return calendar.getTime();
+        return new Date(addDays(date.getTime(), days));
     }
 
     // 在给定日期的基础上增加小时(24h)
     // Add hours to the given date
     public static Date addHours(Date date, int hours) {
-        Calendar calendar = Calendar.getInstance();
-        calendar.setTime(date);
-        calendar.add(Calendar.HOUR_OF_DAY, hours);
-        return calendar.getTime();
+        return new Date(addHours(date.getTime(), hours));
     }
 
     // 在给定日期的基础上增加分钟
     // Add minutes to the given date
     public static Date addMinutes(Date date, int minutes) {
-        Calendar calendar = Calendar.getInstance();
-        calendar.setTime(date);
-        calendar.add(Calendar.MINUTE, minutes);
-        return calendar.getTime();
+        return new Date(addMinutes(date.getTime(), minutes));
     }
 
     // 在给定日期的基础上增加秒数
     // Add seconds to the given date
     public static Date addSeconds(Date date, int seconds) {
-        Calendar calendar = Calendar.getInstance();
-        calendar.setTime(date);
-        calendar.add(Calendar.SECOND, seconds);
-        return calendar.getTime();
+        return new Date(addSeconds(date.getTime(), seconds));
+    }
+
+    // 以下毫秒时间戳版本使用默认时区的 EpochDates，不创建 Calendar，结果与 Calendar 相同；
+    // 大量调用时可以保存 EpochDates.systemDefault() 直接使用
+    // Epoch-millis versions backed by EpochDates for the default time zone
+
+    // 在给定时间戳的基础上增加天数
+    // Add days to the given epoch millis
+    public static long addDays(long epochMillis, int days) {
+        return EpochDates.systemDefault().addDays(epochMillis, days);
+    }
+
+    // 在给定时间戳的基础上增加小时(24h)
+    // Add hours to the given epoch millis
+    public static long addHours(long epochMillis, int hours) {
+        return EpochDates.systemDefault().addHours(epochMillis, hours);
+    }
+
+    // 在给定时间戳的基础上增加分钟
+    // Add minutes to the given epoch millis
+    public static long addMinutes(long epochMillis, int minutes) {
+        return EpochDates.systemDefault().addMinutes(epochMillis, minutes);
+    }
+
+    // 在给定时间戳的基础上增加秒数
+    // Add seconds to the given epoch millis
+    public static long addSeconds(long epochMillis, int seconds) {
+        return EpochDates.systemDefault().addSeconds(epochMillis, seconds);
     }
 
     // 获取当前日期和时间
@@ -149,48 +201,25 @@ public class DateUtils {
     // 获取当天开始时间
     // Get the start time of the day
     public static Date getStartOfDay(Date date) {
-        Calendar calendar = Calendar.getInstance();
-        calendar.setTime(date);
-        calendar.set(Calendar.HOUR_OF_DAY, 0);
-        calendar.set(Calendar.MINUTE, 0);
-        calendar.set(Calendar.SECOND, 0);
-        calendar.set(Calendar.MILLISECOND, 0);
-        return calendar.getTime();
+        return new Date(getStartOfDay(date.getTime()));
     }
 
     // 获取当天结束时间
     // Get the end time of the day
     public static Date getEndOfDay(Date date) {
-        Calendar calendar = Calendar.getInstance();
-        calendar.setTime(date);
-        calendar.set(Calendar.HOUR_OF_DAY, 23);
-        calendar.set(Calendar.MINUTE, 59);
-        calendar.set(Calendar.SECOND, 59);
-        calendar.set(Calendar.MILLISECOND, 999);
-        return calendar.getTime();
+        return new Date(getEndOfDay(date.getTime()));
     }
 
     // 判断两个日期是否为同一天
     // Judge whether two dates are the same day
     public static boolean isSameDay(Date date1, Date date2) {
-        Calendar calendar1 = Calendar.getInstance();
-        calendar1.setTime(date1);
-
-        Calendar calendar2 = Calendar.getInstance();
-        calendar2.setTime(date2);
-
-        return calendar1.get(Calendar.YEAR) == calendar2.get(Calendar.YEAR)
-                && calendar1.get(Calendar.MONTH) == calendar2.get(Calendar.MONTH)
-                && calendar1.get(Calendar.DAY_OF_MONTH) == calendar2.get(Calendar.DAY_OF_MONTH);
+        return isSameDay(date1.getTime(), date2.getTime());
     }
 
     // 判断某个日期是否为工作日或周末
     // Judge whether a date is a working day or weekend
     public static boolean isWeekend(Date date) {
-        Calendar calendar = Calendar.getInstance();
-        calendar.setTime(date);
-        int dayOfWeek = calendar.get(Calendar.DAY_OF_WEEK);
-        return dayOfWeek == Calendar.SATURDAY || dayOfWeek == Calendar.SUNDAY;
+        return isWeekend(date.getTime());
     }
 
     // 判断某个日期是否为工作日
@@ -202,19 +231,55 @@ public class DateUtils {
     // 获取某个日期所在月份的第一天
     // Get the first day of the month in which a date is located
     public static Date getStartOfMonth(Date date) {
-        Calendar calendar = Calendar.getInstance();
-        calendar.setTime(date);
-        calendar.set(Calendar.DAY_OF_MONTH, 1);
-        return getStartOfDay(calendar.getTime());
+        return new Date(getStartOfMonth(date.getTime()));
     }
 
     // 获取某个日期所在月份的最后一天
     // Get the last day of the month in which a date is located
     public static Date getEndOfMonth(Date date) {
-        Calendar calendar = Calendar.getInstance();
-        calendar.setTime(date);
-        calendar.set(Calendar.DAY_OF_MONTH, calendar.getActualMaximum(Calendar.DAY_OF_MONTH));
-        return getEndOfDay(calendar.getTime());
+        return new Date(getEndOfMonth(date.getTime()));
+    }
+
+    // 获取时间戳所在当天的开始时间
+    // Get the start time of the day of the epoch millis
+    public static long getStartOfDay(long epochMillis) {
+        return EpochDates.systemDefault().getStartOfDay(epochMillis);
+    }
+
+    // 获取时间戳所在当天的结束时间
+    // Get the end time of the day of the epoch millis
+    public static long getEndOfDay(long epochMillis) {
+        return EpochDates.systemDefault().getEndOfDay(epochMillis);
+    }
+
+    // 判断两个时间戳是否为同一天
+    // Judge whether two epoch millis are on the same day
+    public static boolean isSameDay(long epochMillis1, long epochMillis2) {
+        return EpochDates.systemDefault().isSameDay(epochMillis1, epochMillis2);
+    }
+
+    // 判断时间戳是否为周末
+    // Judge whether the epoch millis is on a weekend
+    public static boolean isWeekend(long epochMillis) {
+        return EpochDates.systemDefault().isWeekend(epochMillis);
+    }
+
+    // 判断时间戳是否为工作日
+    // Judge whether the epoch millis is on a working day
+    public static boolean isWeekday(long epochMillis) {
+        return !isWeekend(epochMillis);
+    }
+
+    // 获取时间戳所在月份的第一天
+    // Get the first day of the month of the epoch millis
+    public static long getStartOfMonth(long epochMillis) {
+        return EpochDates.systemDefault().getStartOfMonth(epochMillis);
+    }
+
+    // 获取时间戳所在月份的最后一天
+    // Get the last day of the month of the epoch millis
+    public static long getEndOfMonth(long epochMillis) {
+        return EpochDates.systemDefault().getEndOfMonth(epochMillis);
     }
 
     public static void main(String[] args) {
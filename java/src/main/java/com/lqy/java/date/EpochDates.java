@@ -0,0 +1,566 @@
+package com.lqy.java.date;
+
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.zone.ZoneOffsetTransition;
+import java.time.zone.ZoneRules;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Map;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 基于毫秒时间戳的日期计算，不创建 Calendar
+ * Calendar-free date arithmetic on epoch millis
+ * <p>
+ * 每个时区预先计算 1900 ~ 2100 年的 UTC 偏移变化表（偏移取自 TimeZone 本身），
+ * 日、月、星期的边界只需二分查找偏移后做整数运算，没有对象分配。结果与 DateUtils 原来的 Calendar 实现完全一致：
+ * <ul>
+ * <li>本地时间转 UTC 时，夏令时跳过的时间按变化前的偏移计算（结果落在跳变之后），重叠的时间取变化后的偏移；</li>
+ * <li>addDays 保持本地时刻不变，偏移变化导致日期改变时保留未调整的结果；addHours/addMinutes/addSeconds 直接加毫秒；</li>
+ * <li>getStartOfMonth/getEndOfMonth 先把日期设为月初/月末（保留时刻），再取当天的开始/结束。</li>
+ * </ul>
+ * 表范围以外的时间、偏移表与 TimeZone 不一致的时区、不在时区数据库中的自定义时区使用 Calendar。实例不可变，应当保存复用。
+ */
+public final class EpochDates {
+    private static final long DAY = 86_400_000L;
+
+    /**
+     * 1900-01-01T00:00:00Z 与 2100-01-01T00:00:00Z
+     */
+    private static final long TABLE_START = -2208988800000L;
+    private static final long TABLE_END = 4102444800000L;
+
+    /**
+     * 快速路径的输入需要离表的边界足够远，使月初、月末等中间结果也在表内
+     */
+    private static final long MARGIN = 40 * DAY;
+
+    private static final int MAX_CACHE_SIZE = 1024;
+    private static final Map<TimeZone, EpochDates> CACHE = new ConcurrentHashMap<>();
+
+    private final TimeZone timeZone;
+
+    /**
+     * 偏移变化的 UTC 时刻、变化后的偏移和变化后偏移下的本地时刻；为 null 时使用 Calendar
+     */
+    private final long[] transitions;
+    private final int[] offsets;
+    private final long[] wallTransitions;
+    private final int initialOffset;
+
+    private EpochDates(TimeZone timeZone, boolean buildTable) {
+        this.timeZone = timeZone;
+        this.initialOffset = timeZone.getOffset(TABLE_START);
+        ZoneRules rules = buildTable ? rules(timeZone) : null;
+        if (rules == null) {
+            this.transitions = null;
+            this.offsets = null;
+            this.wallTransitions = null;
+            return;
+        }
+        long[] utc = new long[64];
+        int[] after = new int[64];
+        int count = 0;
+        ZoneOffsetTransition transition = rules.nextTransition(Instant.ofEpochMilli(TABLE_START));
+        int previous = initialOffset;
+        while (transition != null && transition.toEpochSecond() * 1000 < TABLE_END) {
+            long at = transition.toEpochSecond() * 1000;
+            int offset = timeZone.getOffset(at);
+            if (offset != previous) {
+                if (count == utc.length) {
+                    utc = Arrays.copyOf(utc, count * 2);
+                    after = Arrays.copyOf(after, count * 2);
+                }
+                utc[count] = at;
+                after[count] = offset;
+                count++;
+                previous = offset;
+            }
+            transition = rules.nextTransition(transition.getInstant());
+        }
+        long[] walls = new long[count];
+        for (int i = 0; i < count; i++) {
+            walls[i] = utc[i] + after[i];
+        }
+        if (matches(timeZone, initialOffset, utc, after, count)) {
+            this.transitions = Arrays.copyOf(utc, count);
+            this.offsets = Arrays.copyOf(after, count);
+            this.wallTransitions = walls;
+        } else {
+            this.transitions = null;
+            this.offsets = null;
+            this.wallTransitions = null;
+        }
+    }
+
+    /**
+     * 用于枚举偏移变化时刻的 java.time 规则；ID 不在时区数据库中（如自定义的 SimpleTimeZone）时返回 null
+     */
+    private static ZoneRules rules(TimeZone timeZone) {
+        try {
+            return timeZone.toZoneId().getRules();
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 检查偏移表与 TimeZone 在每个变化点两侧以及每隔 6 小时是否一致
+     */
+    private static boolean matches(TimeZone timeZone, int initialOffset, long[] utc, int[] after, int count) {
+        int previous = initialOffset;
+        for (int i = 0; i < count; i++) {
+            if (timeZone.getOffset(utc[i] - 1) != previous || timeZone.getOffset(utc[i]) != after[i]) {
+                return false;
+            }
+            previous = after[i];
+        }
+        int index = -1;
+        for (long t = TABLE_START; t < TABLE_END; t += DAY / 4) {
+            while (index + 1 < count && utc[index + 1] <= t) {
+                index++;
+            }
+            if (timeZone.getOffset(t) != (index < 0 ? initialOffset : after[index])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 指定时区的实例
+     * @param zone 时区
+     * @return 实例（按时区 ID 缓存）
+     */
+    public static EpochDates of(ZoneId zone) {
+        return of(TimeZone.getTimeZone(zone));
+    }
+
+    /**
+     * 指定时区的实例
+     * @param timeZone 时区
+     * @return 实例（按 TimeZone.equals 缓存，即 ID 与规则都相同；没有实现 equals 的 TimeZone 子类不缓存，也不建偏移表）
+     */
+    public static EpochDates of(TimeZone timeZone) {
+        EpochDates dates = CACHE.get(timeZone);
+        if (dates != null) {
+            return dates;
+        }
+        TimeZone copy = (TimeZone) timeZone.clone();
+        if (!copy.equals(timeZone)) {
+            return new EpochDates(copy, false);
+        }
+        if (CACHE.size() >= MAX_CACHE_SIZE) {
+            CACHE.clear();
+        }
+        return CACHE.computeIfAbsent(copy, key -> new EpochDates(key, true));
+    }
+
+    /**
+     * 当前默认时区（与 Calendar.getInstance() 相同）的实例
+     */
+    public static EpochDates systemDefault() {
+        return of(TimeZone.getDefault());
+    }
+
+    /**
+     * 时区
+     */
+    public TimeZone getTimeZone() {
+        return (TimeZone) timeZone.clone();
+    }
+
+    /**
+     * 偏移表是否可用，为 false 时所有计算都使用 Calendar
+     */
+    public boolean hasTable() {
+        return transitions != null;
+    }
+
+    /**
+     * 指定时刻的 UTC 偏移（含夏令时），与 TimeZone.getOffset 相同
+     * @param epochMillis 毫秒时间戳
+     * @return 偏移毫秒数
+     */
+    public int getOffset(long epochMillis) {
+        return inTable(epochMillis) ? offset(epochMillis) : timeZone.getOffset(epochMillis);
+    }
+
+    // 在给定时间的基础上增加天数
+    // Add days to the given time
+    public long addDays(long epochMillis, int days) {
+        if (fast(epochMillis)) {
+            int offset = offset(epochMillis);
+            long local = epochMillis + offset;
+            long fixedDay = Math.floorDiv(local, DAY) + days;
+            long result = fixedDay * DAY + Math.floorMod(local, DAY) - offset;
+            if (fast(result)) {
+                int change = offset - offset(result);
+                if (change != 0) {
+                    long adjusted = result + change;
+                    // 调整后日期改变时保留未调整的结果
+                    if (Math.floorDiv(adjusted + offset(adjusted), DAY) == fixedDay) {
+                        return adjusted;
+                    }
+                }
+                return result;
+            }
+        }
+        return calendarAdd(epochMillis, Calendar.DATE, days);
+    }
+
+    // 在给定时间的基础上增加小时
+    // Add hours to the given time
+    public long addHours(long epochMillis, int hours) {
+        return epochMillis + hours * 3_600_000L;
+    }
+
+    // 在给定时间的基础上增加分钟
+    // Add minutes to the given time
+    public long addMinutes(long epochMillis, int minutes) {
+        return epochMillis + minutes * 60_000L;
+    }
+
+    // 在给定时间的基础上增加秒数
+    // Add seconds to the given time
+    public long addSeconds(long epochMillis, int seconds) {
+        return epochMillis + seconds * 1_000L;
+    }
+
+    // 获取当天开始时间
+    // Get the start time of the day
+    public long getStartOfDay(long epochMillis) {
+        if (fast(epochMillis)) {
+            return toUtc(Math.floorDiv(epochMillis + offset(epochMillis), DAY) * DAY);
+        }
+        return calendarTimeOfDay(epochMillis, 0, 0, 0, 0);
+    }
+
+    // 获取当天结束时间
+    // Get the end time of the day
+    public long getEndOfDay(long epochMillis) {
+        if (fast(epochMillis)) {
+            return toUtc(Math.floorDiv(epochMillis + offset(epochMillis), DAY) * DAY + DAY - 1);
+        }
+        return calendarTimeOfDay(epochMillis, 23, 59, 59, 999);
+    }
+
+    // 判断两个时间是否为同一天
+    // Judge whether two times are on the same day
+    public boolean isSameDay(long epochMillis1, long epochMillis2) {
+        if (fast(epochMillis1) && fast(epochMillis2)) {
+            return epochDay(epochMillis1) == epochDay(epochMillis2);
+        }
+        Calendar calendar1 = calendar(epochMillis1);
+        Calendar calendar2 = calendar(epochMillis2);
+        return calendar1.get(Calendar.YEAR) == calendar2.get(Calendar.YEAR)
+                && calendar1.get(Calendar.MONTH) == calendar2.get(Calendar.MONTH)
+                && calendar1.get(Calendar.DAY_OF_MONTH) == calendar2.get(Calendar.DAY_OF_MONTH);
+    }
+
+    /**
+     * 星期几
+     * @param epochMillis 毫秒时间戳
+     * @return 1（星期一）~ 7（星期日）
+     */
+    public int getDayOfWeek(long epochMillis) {
+        if (fast(epochMillis)) {
+            // 1970-01-01 是星期四
+            return (int) Math.floorMod(epochDay(epochMillis) + 3, 7L) + 1;
+        }
+        int dayOfWeek = calendar(epochMillis).get(Calendar.DAY_OF_WEEK);
+        return dayOfWeek == Calendar.SUNDAY ? 7 : dayOfWeek - 1;
+    }
+
+    // 判断是否为周末
+    // Judge whether a time is on a weekend
+    public boolean isWeekend(long epochMillis) {
+        return getDayOfWeek(epochMillis) >= 6;
+    }
+
+    // 判断是否为工作日
+    // Judge whether a time is on a working day
+    public boolean isWeekday(long epochMillis) {
+        return !isWeekend(epochMillis);
+    }
+
+    // 获取所在月份的第一天
+    // Get the first day of the month
+    public long getStartOfMonth(long epochMillis) {
+        if (fast(epochMillis)) {
+            long local = epochMillis + offset(epochMillis);
+            long day = Math.floorDiv(local, DAY);
+            long firstDay = day - dayOfMonth(day) + 1;
+            return getStartOfDay(toUtc(firstDay * DAY + Math.floorMod(local, DAY)));
+        }
+        Calendar calendar = calendar(epochMillis);
+        calendar.set(Calendar.DAY_OF_MONTH, 1);
+        return getStartOfDay(calendar.getTimeInMillis());
+    }
+
+    // 获取所在月份的最后一天
+    // Get the last day of the month
+    public long getEndOfMonth(long epochMillis) {
+        if (fast(epochMillis)) {
+            long local = epochMillis + offset(epochMillis);
+            long day = Math.floorDiv(local, DAY);
+            long lastDay = day - dayOfMonth(day) + lengthOfMonth(day);
+            return getEndOfDay(toUtc(lastDay * DAY + Math.floorMod(local, DAY)));
+        }
+        Calendar calendar = calendar(epochMillis);
+        calendar.set(Calendar.DAY_OF_MONTH, calendar.getActualMaximum(Calendar.DAY_OF_MONTH));
+        return getEndOfDay(calendar.getTimeInMillis());
+    }
+
+    /**
+     * 时刻是否在偏移表范围内
+     */
+    boolean inTable(long epochMillis) {
+        return transitions != null && epochMillis >= TABLE_START && epochMillis < TABLE_END;
+    }
+
+    /**
+     * 时刻是否可以走快速路径（偏移表可用且离表的边界足够远）
+     */
+    boolean fast(long epochMillis) {
+        return transitions != null && epochMillis >= TABLE_START + MARGIN && epochMillis < TABLE_END - MARGIN;
+    }
+
+    /**
+     * 表内时刻的偏移
+     */
+    int offset(long epochMillis) {
+        int index = lastIndexAtOrBefore(transitions, epochMillis);
+        return index < 0 ? initialOffset : offsets[index];
+    }
+
+    /**
+     * 表内时刻所在偏移区间的起始 UTC 时刻（最后一次不晚于该时刻的变化），没有时返回表的开始时刻
+     */
+    long previousTransition(long epochMillis) {
+        int index = lastIndexAtOrBefore(transitions, epochMillis);
+        return index < 0 ? TABLE_START : transitions[index];
+    }
+
+    /**
+     * 表内时刻之后下一次偏移变化的 UTC 时刻，没有时返回表的结束时刻
+     */
+    long nextTransition(long epochMillis) {
+        int index = lastIndexAtOrBefore(transitions, epochMillis) + 1;
+        return index < transitions.length ? transitions[index] : TABLE_END;
+    }
+
+    /**
+     * 本地时刻转为 UTC，规则与 Calendar 相同：取最后一个满足 (变化时刻 + 变化后偏移) &lt;= 本地时刻 的变化的偏移
+     */
+    long toUtc(long localMillis) {
+        int index = lastIndexAtOrBefore(wallTransitions, localMillis);
+        return localMillis - (index < 0 ? initialOffset : offsets[index]);
+    }
+
+    private long epochDay(long epochMillis) {
+        return Math.floorDiv(epochMillis + offset(epochMillis), DAY);
+    }
+
+    private static int lastIndexAtOrBefore(long[] values, long key) {
+        int low = 0;
+        int high = values.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (values[mid] <= key) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return high;
+    }
+
+    /**
+     * 公历日期中的年、月、日，算法见 Howard Hinnant 的 civil_from_days
+     */
+    static int year(long epochDay) {
+        long z = epochDay + 719468;
+        long era = Math.floorDiv(z, 146097);
+        long dayOfEra = z - era * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long mp = (5 * dayOfYear + 2) / 153;
+        return (int) (yearOfEra + era * 400 + (mp >= 10 ? 1 : 0));
+    }
+
+    static int month(long epochDay) {
+        long z = epochDay + 719468;
+        long dayOfEra = z - Math.floorDiv(z, 146097) * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long mp = (5 * dayOfYear + 2) / 153;
+        return (int) (mp < 10 ? mp + 3 : mp - 9);
+    }
+
+    static int dayOfMonth(long epochDay) {
+        long z = epochDay + 719468;
+        long dayOfEra = z - Math.floorDiv(z, 146097) * 146097;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long mp = (5 * dayOfYear + 2) / 153;
+        return (int) (dayOfYear - (153 * mp + 2) / 5 + 1);
+    }
+
+    /**
+     * 公历日期对应的 epoch day，算法见 Howard Hinnant 的 days_from_civil
+     */
+    static long epochDay(int year, int month, int dayOfMonth) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + dayOfMonth - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    private static int lengthOfMonth(long epochDay) {
+        int month = month(epochDay);
+        if (month == 2) {
+            int year = year(epochDay);
+            return (year % 4 == 0 && year % 100 != 0) || year % 400 == 0 ? 29 : 28;
+        }
+        return month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
+    }
+
+    private Calendar calendar(long epochMillis) {
+        Calendar calendar = Calendar.getInstance(timeZone);
+        calendar.setTimeInMillis(epochMillis);
+        return calendar;
+    }
+
+    private long calendarAdd(long epochMillis, int field, int amount) {
+        Calendar calendar = calendar(epochMillis);
+        calendar.add(field, amount);
+        return calendar.getTimeInMillis();
+    }
+
+    private long calendarTimeOfDay(long epochMillis, int hour, int minute, int second, int millisecond) {
+        Calendar calendar = calendar(epochMillis);
+        calendar.set(Calendar.HOUR_OF_DAY, hour);
+        calendar.set(Calendar.MINUTE, minute);
+        calendar.set(Calendar.SECOND, second);
+        calendar.set(Calendar.MILLISECOND, millisecond);
+        return calendar.getTimeInMillis();
+    }
+
+    /**
+     * DateUtils 原来的 Calendar 实现，用于对比
+     */
+    private static long[] calendarReference(TimeZone zone, long t, int days) {
+        Calendar calendar = Calendar.getInstance(zone);
+        calendar.setTimeInMillis(t);
+        calendar.add(Calendar.DATE, days);
+        long added = calendar.getTimeInMillis();
+        long startOfDay = calendarDayBoundary(zone, t, 0, 0, 0, 0);
+        long endOfDay = calendarDayBoundary(zone, t, 23, 59, 59, 999);
+        calendar.setTimeInMillis(t);
+        calendar.set(Calendar.DAY_OF_MONTH, 1);
+        long startOfMonth = calendarDayBoundary(zone, calendar.getTimeInMillis(), 0, 0, 0, 0);
+        calendar.setTimeInMillis(t);
+        calendar.set(Calendar.DAY_OF_MONTH, calendar.getActualMaximum(Calendar.DAY_OF_MONTH));
+        long endOfMonth = calendarDayBoundary(zone, calendar.getTimeInMillis(), 23, 59, 59, 999);
+        calendar.setTimeInMillis(t);
+        int dayOfWeek = calendar.get(Calendar.DAY_OF_WEEK);
+        long weekend = dayOfWeek == Calendar.SATURDAY || dayOfWeek == Calendar.SUNDAY ? 1 : 0;
+        return new long[]{added, startOfDay, endOfDay, startOfMonth, endOfMonth, weekend};
+    }
+
+    private static long calendarDayBoundary(TimeZone zone, long t, int hour, int minute, int second, int millisecond) {
+        Calendar calendar = Calendar.getInstance(zone);
+        calendar.setTimeInMillis(t);
+        calendar.set(Calendar.HOUR_OF_DAY, hour);
+        calendar.set(Calendar.MINUTE, minute);
+        calendar.set(Calendar.SECOND, second);
+        calendar.set(Calendar.MILLISECOND, millisecond);
+        return calendar.getTimeInMillis();
+    }
+
+    public static void main(String[] args) {
+        String[] zones = {"Asia/Shanghai", "America/New_York", "Europe/London", "America/Sao_Paulo", "Australia/Lord_Howe"};
+        Random random = new Random(42);
+        for (String id : zones) {
+            TimeZone zone = TimeZone.getTimeZone(id);
+            EpochDates dates = of(zone);
+            int mismatches = 0;
+            for (int i = 0; i < 200_000; i++) {
+                long t = TABLE_START + (long) (random.nextDouble() * (TABLE_END - TABLE_START));
+                if (i % 2 == 0 && dates.hasTable()) {
+                    // 集中在偏移变化附近
+                    long near = dates.nextTransition(t);
+                    t = near - 2 * DAY + (long) (random.nextDouble() * 4 * DAY);
+                }
+                int days = random.nextInt(61) - 30;
+                long[] expected = calendarReference(zone, t, days);
+                long[] actual = {dates.addDays(t, days), dates.getStartOfDay(t), dates.getEndOfDay(t),
+                        dates.getStartOfMonth(t), dates.getEndOfMonth(t), dates.isWeekend(t) ? 1 : 0};
+                if (!Arrays.equals(expected, actual)) {
+                    mismatches++;
+                }
+            }
+            System.out.printf("%-20s table: %-5s mismatches against Calendar: %d%n", id, dates.hasTable(), mismatches);
+        }
+
+        EpochDates dates = systemDefault();
+        TimeZone zone = TimeZone.getDefault();
+        int count = 2_000_000;
+        long[] events = new long[count];
+        for (int i = 0; i < count; i++) {
+            events[i] = 1_600_000_000_000L + (long) (random.nextDouble() * 200 * DAY);
+        }
+        for (int round = 0; round < 2; round++) {
+            long start = System.nanoTime();
+            long checksum = 0;
+            for (long event : events) {
+                Calendar calendar = Calendar.getInstance(zone);
+                calendar.setTimeInMillis(event);
+                calendar.set(Calendar.HOUR_OF_DAY, 0);
+                calendar.set(Calendar.MINUTE, 0);
+                calendar.set(Calendar.SECOND, 0);
+                calendar.set(Calendar.MILLISECOND, 0);
+                checksum += calendar.getTimeInMillis();
+            }
+            long calendarNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (long event : events) {
+                checksum -= dates.getStartOfDay(event);
+            }
+            long fastNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (long event : events) {
+                checksum += calendarAdd(zone, event, 1);
+            }
+            long calendarAddNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (long event : events) {
+                checksum -= dates.addDays(event, 1);
+            }
+            long fastAddNanos = System.nanoTime() - start;
+            if (round > 0) {
+                System.out.printf("getStartOfDay: Calendar %5.1f ns/op, EpochDates %5.1f ns/op%n",
+                        (double) calendarNanos / count, (double) fastNanos / count);
+                System.out.printf("addDays:       Calendar %5.1f ns/op, EpochDates %5.1f ns/op (checksum %d)%n",
+                        (double) calendarAddNanos / count, (double) fastAddNanos / count, checksum);
+            }
+        }
+    }
+
+    private static long calendarAdd(TimeZone zone, long t, int days) {
+        Calendar calendar = Calendar.getInstance(zone);
+        calendar.setTimeInMillis(t);
+        calendar.add(Calendar.DATE, days);
+        return calendar.getTimeInMillis();
+    }
+}
@@ -0,0 +1,607 @@
+package com.lqy.java.date;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.Deque;
+import java.util.List;
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 按列批量格式化、解析 yyyy-MM-dd HH:mm:ss 时间戳
+ * bulk columnar formatting and parsing of DEFAULT_DATETIME_FORMAT timestamps
+ * <p>
+ * 数据按块在线程池中并行处理。格式化时缓存 "yyyy-MM-dd HH:" 前缀，
+ * 在下一个整点或时区偏移变化之前只重新计算分、秒，排好序或按时间聚集的数据几乎不需要计算日期；
+ * 解析时按固定位置手工读取数字，不使用正则和 ParsePosition。时区偏移来自 {@link EpochDates} 的偏移表。
+ * 结果与逐个调用 DateUtils.formatDateTime/parseDateTime 相同：非规范文本（如单个数字的月份、末尾的额外数字）
+ * 和偏移表范围外的时间逐个交给 {@link DateTimeFormatterCache} 处理。
+ */
+public class TimestampColumns {
+    private static final long HOUR = 3_600_000L;
+    private static final long DAY = 86_400_000L;
+
+    /**
+     * "yyyy-MM-dd HH:mm:ss" 的长度
+     */
+    private static final int LENGTH = 19;
+
+    /**
+     * 每个并行块的行数
+     */
+    private static final int CHUNK_ROWS = 64 * 1024;
+
+    /**
+     * 使用默认时区和公共线程池格式化
+     * @param epochMillis 毫秒时间戳
+     * @return 与 epochMillis 一一对应的文本
+     */
+    public static String[] formatDateTime(long[] epochMillis) {
+        return formatDateTime(epochMillis, TimeZone.getDefault(), ForkJoinPool.commonPool());
+    }
+
+    /**
+     * 批量格式化为 yyyy-MM-dd HH:mm:ss
+     * @param epochMillis 毫秒时间戳
+     * @param zone        时区
+     * @param pool        线程池
+     * @return 与 epochMillis 一一对应的文本
+     */
+    public static String[] formatDateTime(long[] epochMillis, ZoneId zone, ForkJoinPool pool) {
+        return formatDateTime(epochMillis, TimeZone.getTimeZone(zone), pool);
+    }
+
+    /**
+     * 按 TimeZone 本身的规则批量格式化为 yyyy-MM-dd HH:mm:ss，与 SimpleDateFormat.setTimeZone(timeZone) 的结果相同
+     * @param epochMillis 毫秒时间戳
+     * @param timeZone    时区
+     * @param pool        线程池
+     * @return 与 epochMillis 一一对应的文本
+     */
+    public static String[] formatDateTime(long[] epochMillis, TimeZone timeZone, ForkJoinPool pool) {
+        EpochDates dates = EpochDates.of(timeZone);
+        String[] result = new String[epochMillis.length];
+        List<RecursiveAction> tasks = new ArrayList<>();
+        for (int from = 0; from < epochMillis.length; from += CHUNK_ROWS) {
+            int start = from;
+            int end = Math.min(epochMillis.length, from + CHUNK_ROWS);
+            tasks.add(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    Formatter formatter = new Formatter(dates, timeZone);
+                    byte[] buffer = new byte[LENGTH];
+                    for (int i = start; i < end; i++) {
+                        long t = epochMillis[i];
+                        result[i] = formatter.format(t, buffer, 0)
+                                ? new String(buffer, 0, LENGTH, StandardCharsets.ISO_8859_1)
+                                : formatter.formatSlow(t);
+                    }
+                }
+            });
+        }
+        invokeAll(pool, tasks);
+        return result;
+    }
+
+    /**
+     * 批量格式化并以 UTF-8 写出，每个值后面跟一个分隔符，out 不会被关闭
+     * @param epochMillis 毫秒时间戳
+     * @param timeZone    时区
+     * @param delimiter   分隔符，如 '\n'
+     * @param out         输出
+     * @param pool        线程池
+     * @return 写出的字节数
+     * @throws IOException
+     */
+    public static long writeDateTime(long[] epochMillis, TimeZone timeZone, byte delimiter, OutputStream out,
+                                     ForkJoinPool pool) throws IOException {
+        EpochDates dates = EpochDates.of(timeZone);
+        int window = pool.getParallelism() * 2;
+        Deque<ForkJoinTask<byte[]>> pending = new ArrayDeque<>(window);
+        long written = 0;
+        try {
+            for (int from = 0; from < epochMillis.length; from += CHUNK_ROWS) {
+                int start = from;
+                int end = Math.min(epochMillis.length, from + CHUNK_ROWS);
+                pending.add(pool.submit(() -> encode(epochMillis, start, end, dates, timeZone, delimiter)));
+                if (pending.size() >= window) {
+                    written += write(await(pending.poll()), out);
+                }
+            }
+            while (!pending.isEmpty()) {
+                written += write(await(pending.poll()), out);
+            }
+        } finally {
+            for (ForkJoinTask<byte[]> task : pending) {
+                task.cancel(false);
+            }
+        }
+        return written;
+    }
+
+    /**
+     * 批量格式化并以 UTF-8 写出，每个值后面跟一个分隔符，out 不会被关闭
+     * @return 写出的字节数
+     * @throws IOException
+     */
+    public static long writeDateTime(long[] epochMillis, ZoneId zone, byte delimiter, OutputStream out,
+                                     ForkJoinPool pool) throws IOException {
+        return writeDateTime(epochMillis, TimeZone.getTimeZone(zone), delimiter, out, pool);
+    }
+
+    private static byte[] encode(long[] epochMillis, int start, int end, EpochDates dates, TimeZone timeZone,
+                                 byte delimiter) {
+        Formatter formatter = new Formatter(dates, timeZone);
+        byte[] buffer = new byte[(end - start) * (LENGTH + 1)];
+        int position = 0;
+        for (int i = start; i < end; i++) {
+            long t = epochMillis[i];
+            if (buffer.length - position < LENGTH + 1) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+            }
+            if (formatter.format(t, buffer, position)) {
+                position += LENGTH;
+            } else {
+                byte[] slow = formatter.formatSlow(t).getBytes(StandardCharsets.UTF_8);
+                if (buffer.length - position < slow.length + 1) {
+                    buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + slow.length + 1));
+                }
+                System.arraycopy(slow, 0, buffer, position, slow.length);
+                position += slow.length;
+            }
+            buffer[position++] = delimiter;
+        }
+        return position == buffer.length ? buffer : Arrays.copyOf(buffer, position);
+    }
+
+    private static int write(byte[] bytes, OutputStream out) throws IOException {
+        out.write(bytes);
+        return bytes.length;
+    }
+
+    /**
+     * 使用默认时区和公共线程池解析
+     * @param texts yyyy-MM-dd HH:mm:ss 文本
+     * @return 毫秒时间戳
+     * @throws ParseException 某一行无法解析
+     */
+    public static long[] parseDateTime(String[] texts) throws ParseException {
+        return parseDateTime(texts, TimeZone.getDefault(), ForkJoinPool.commonPool());
+    }
+
+    /**
+     * 批量解析 yyyy-MM-dd HH:mm:ss 文本
+     * @param texts 文本
+     * @param zone  时区
+     * @param pool  线程池
+     * @return 与 texts 一一对应的毫秒时间戳
+     * @throws ParseException 某一行无法解析，消息中包含行号
+     */
+    public static long[] parseDateTime(String[] texts, ZoneId zone, ForkJoinPool pool) throws ParseException {
+        return parseDateTime(texts, TimeZone.getTimeZone(zone), pool);
+    }
+
+    /**
+     * 按 TimeZone 本身的规则批量解析 yyyy-MM-dd HH:mm:ss 文本
+     * @param texts 文本
+     * @param timeZone 时区
+     * @param pool  线程池
+     * @return 与 texts 一一对应的毫秒时间戳
+     * @throws ParseException 某一行无法解析，消息中包含行号
+     */
+    public static long[] parseDateTime(String[] texts, TimeZone timeZone, ForkJoinPool pool) throws ParseException {
+        EpochDates dates = EpochDates.of(timeZone);
+        long[] result = new long[texts.length];
+        List<ParseTask> tasks = new ArrayList<>();
+        for (int from = 0; from < texts.length; from += CHUNK_ROWS) {
+            int start = from;
+            int end = Math.min(texts.length, from + CHUNK_ROWS);
+            tasks.add(new ParseTask() {
+                @Override
+                void parse() throws ParseException {
+                    for (int i = start; i < end; i++) {
+                        String text = texts[i];
+                        long value = parseFast(text, dates);
+                        result[i] = value != Long.MIN_VALUE ? value : parseSlow(text, timeZone, i);
+                    }
+                }
+            });
+        }
+        invokeAll(pool, tasks);
+        rethrow(tasks);
+        return result;
+    }
+
+    /**
+     * 批量解析以分隔符分隔的 UTF-8 文本，见 {@link #parseDateTime(byte[], byte, TimeZone, ForkJoinPool)}
+     * @throws ParseException 某一行无法解析，消息中包含行号
+     */
+    public static long[] parseDateTime(byte[] utf8, byte delimiter, ZoneId zone, ForkJoinPool pool) throws ParseException {
+        return parseDateTime(utf8, delimiter, TimeZone.getTimeZone(zone), pool);
+    }
+
+    /**
+     * 批量解析以分隔符分隔的 UTF-8 文本（{@link #writeDateTime} 的逆操作），最后一个分隔符可以省略，中间的空行无法解析
+     * @param utf8      文本
+     * @param delimiter 分隔符
+     * @param timeZone  时区
+     * @param pool      线程池
+     * @return 毫秒时间戳
+     * @throws ParseException 某一行无法解析，消息中包含行号
+     */
+    public static long[] parseDateTime(byte[] utf8, byte delimiter, TimeZone timeZone, ForkJoinPool pool)
+            throws ParseException {
+        EpochDates dates = EpochDates.of(timeZone);
+        // 按分隔符对齐分块，各块解析到自己的数组后按顺序拼接
+        int parts = (int) Math.max(1, Math.min(pool.getParallelism() * 4L, utf8.length / ((LENGTH + 1) * 1024L)));
+        int[] bounds = new int[parts + 1];
+        for (int p = 1; p < parts; p++) {
+            int position = Math.max(bounds[p - 1], (int) ((long) utf8.length * p / parts));
+            while (position < utf8.length && position > 0 && utf8[position - 1] != delimiter) {
+                position++;
+            }
+            bounds[p] = position;
+        }
+        bounds[parts] = utf8.length;
+        List<ByteParseTask> tasks = new ArrayList<>(parts);
+        for (int p = 0; p < parts; p++) {
+            tasks.add(new ByteParseTask(utf8, bounds[p], bounds[p + 1], delimiter, dates, timeZone));
+        }
+        invokeAll(pool, tasks);
+        int rows = 0;
+        for (ByteParseTask task : tasks) {
+            rows += task.count;
+        }
+        long[] result = new long[rows];
+        int offset = 0;
+        for (ByteParseTask task : tasks) {
+            if (task.error != null) {
+                // 块内行号加上前面各块的行数
+                throw rowError(task.errorText, offset + task.count, task.error);
+            }
+            System.arraycopy(task.values, 0, result, offset, task.count);
+            offset += task.count;
+        }
+        return result;
+    }
+
+    /**
+     * 解析规范的 yyyy-MM-dd HH:mm:ss 文本
+     * @return 毫秒时间戳，文本不规范或超出偏移表范围时返回 Long.MIN_VALUE
+     */
+    static long parseFast(CharSequence text, EpochDates dates) {
+        int length = text.length();
+        // SimpleDateFormat 会把紧跟的数字读入秒
+        if (length < LENGTH || length > LENGTH && Character.isDigit(text.charAt(LENGTH))) {
+            return Long.MIN_VALUE;
+        }
+        if (text.charAt(4) != '-' || text.charAt(7) != '-' || text.charAt(10) != ' '
+                || text.charAt(13) != ':' || text.charAt(16) != ':') {
+            return Long.MIN_VALUE;
+        }
+        int year = digits(text, 0, 4);
+        int month = digits(text, 5, 2);
+        int day = digits(text, 8, 2);
+        int hour = digits(text, 11, 2);
+        int minute = digits(text, 14, 2);
+        int second = digits(text, 17, 2);
+        return toEpochMillis(year, month, day, hour, minute, second, dates);
+    }
+
+    private static long parseFast(byte[] data, int start, int end, EpochDates dates) {
+        int length = end - start;
+        if (length < LENGTH || length > LENGTH && data[start + LENGTH] >= '0' && data[start + LENGTH] <= '9') {
+            return Long.MIN_VALUE;
+        }
+        if (data[start + 4] != '-' || data[start + 7] != '-' || data[start + 10] != ' '
+                || data[start + 13] != ':' || data[start + 16] != ':') {
+            return Long.MIN_VALUE;
+        }
+        int year = digits(data, start, 4);
+        int month = digits(data, start + 5, 2);
+        int day = digits(data, start + 8, 2);
+        int hour = digits(data, start + 11, 2);
+        int minute = digits(data, start + 14, 2);
+        int second = digits(data, start + 17, 2);
+        return toEpochMillis(year, month, day, hour, minute, second, dates);
+    }
+
+    private static long toEpochMillis(int year, int month, int day, int hour, int minute, int second, EpochDates dates) {
+        // 任一字段不是数字时为负数
+        if ((year | month | day | hour | minute | second) < 0 || month < 1 || month > 12 || day < 1 || hour > 23
+                || minute > 59 || second > 59 || day > lengthOfMonth(year, month)) {
+            return Long.MIN_VALUE;
+        }
+        long local = EpochDates.epochDay(year, month, day) * DAY + hour * HOUR + minute * 60_000L + second * 1000L;
+        if (!dates.fast(local)) {
+            return Long.MIN_VALUE;
+        }
+        return dates.toUtc(local);
+    }
+
+    private static int digits(CharSequence text, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            int digit = text.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static int digits(byte[] data, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            int digit = data[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        if (month == 2) {
+            return (year % 4 == 0 && year % 100 != 0) || year % 400 == 0 ? 29 : 28;
+        }
+        return month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
+    }
+
+    private static long parseSlow(String text, TimeZone timeZone, int row) throws ParseException {
+        try {
+            return DateTimeFormatterCache.parse(text, DateUtils.DEFAULT_DATETIME_FORMAT, timeZone);
+        } catch (ParseException e) {
+            throw rowError(text, row, e);
+        }
+    }
+
+    private static ParseException rowError(String text, int row, ParseException cause) {
+        ParseException error = new ParseException("Unparseable date at row " + row + ": \"" + text + "\"",
+                cause.getErrorOffset());
+        error.initCause(cause);
+        return error;
+    }
+
+    /**
+     * 单个块的格式化状态：缓存当前小时的 "yyyy-MM-dd HH:" 前缀及其有效的 UTC 区间
+     */
+    private static final class Formatter {
+        private final EpochDates dates;
+        private final TimeZone timeZone;
+        private final byte[] prefix = new byte[14];
+        private long validFrom = Long.MAX_VALUE;
+        private long validUntil = Long.MIN_VALUE;
+        private long hourStartUtc;
+
+        private Formatter(EpochDates dates, TimeZone timeZone) {
+            this.dates = dates;
+            this.timeZone = timeZone;
+        }
+
+        /**
+         * 写出 19 个字节
+         * @return 超出偏移表范围时返回 false，需要调用 formatSlow
+         */
+        private boolean format(long t, byte[] out, int position) {
+            if (t < validFrom || t >= validUntil) {
+                if (!dates.fast(t)) {
+                    return false;
+                }
+                int offset = dates.offset(t);
+                long local = t + offset;
+                long hourStartLocal = Math.floorDiv(local, HOUR) * HOUR;
+                hourStartUtc = hourStartLocal - offset;
+                validFrom = Math.max(hourStartUtc, dates.previousTransition(t));
+                validUntil = Math.min(hourStartUtc + HOUR, dates.nextTransition(t));
+                long epochDay = Math.floorDiv(local, DAY);
+                int year = EpochDates.year(epochDay);
+                writeDigits(prefix, 0, year, 4);
+                prefix[4] = '-';
+                writeDigits(prefix, 5, EpochDates.month(epochDay), 2);
+                prefix[7] = '-';
+                writeDigits(prefix, 8, EpochDates.dayOfMonth(epochDay), 2);
+                prefix[10] = ' ';
+                writeDigits(prefix, 11, (int) (Math.floorMod(local, DAY) / HOUR), 2);
+                prefix[13] = ':';
+            }
+            System.arraycopy(prefix, 0, out, position, 14);
+            int withinHour = (int) ((t - hourStartUtc) / 1000);
+            writeDigits(out, position + 14, withinHour / 60, 2);
+            out[position + 16] = ':';
+            writeDigits(out, position + 17, withinHour % 60, 2);
+            return true;
+        }
+
+        private String formatSlow(long t) {
+            return DateTimeFormatterCache.format(t, DateUtils.DEFAULT_DATETIME_FORMAT, timeZone);
+        }
+
+        private static void writeDigits(byte[] out, int position, int value, int count) {
+            for (int i = position + count - 1; i >= position; i--) {
+                out[i] = (byte) ('0' + value % 10);
+                value /= 10;
+            }
+        }
+    }
+
+    private abstract static class ParseTask extends RecursiveAction {
+        ParseException error;
+
+        abstract void parse() throws ParseException;
+
+        @Override
+        protected void compute() {
+            try {
+                parse();
+            } catch (ParseException e) {
+                error = e;
+            }
+        }
+    }
+
+    private static final class ByteParseTask extends RecursiveAction {
+        private final byte[] data;
+        private final int start;
+        private final int end;
+        private final byte delimiter;
+        private final EpochDates dates;
+        private final TimeZone timeZone;
+        private long[] values;
+        private int count;
+        private ParseException error;
+        private String errorText;
+
+        private ByteParseTask(byte[] data, int start, int end, byte delimiter, EpochDates dates, TimeZone timeZone) {
+            this.data = data;
+            this.start = start;
+            this.end = end;
+            this.delimiter = delimiter;
+            this.dates = dates;
+            this.timeZone = timeZone;
+        }
+
+        @Override
+        protected void compute() {
+            values = new long[Math.max(16, (end - start) / (LENGTH + 1) + 1)];
+            int rowStart = start;
+            while (rowStart < end) {
+                int rowEnd = rowStart;
+                while (rowEnd < end && data[rowEnd] != delimiter) {
+                    rowEnd++;
+                }
+                if (rowEnd > rowStart || rowEnd < end) {
+                    long value = parseFast(data, rowStart, rowEnd, dates);
+                    if (value == Long.MIN_VALUE) {
+                        String text = new String(data, rowStart, rowEnd - rowStart, StandardCharsets.UTF_8);
+                        try {
+                            value = DateTimeFormatterCache.parse(text, DateUtils.DEFAULT_DATETIME_FORMAT, timeZone);
+                        } catch (ParseException e) {
+                            // 出错的行是本块的第 count 行
+                            error = e;
+                            errorText = text;
+                            return;
+                        }
+                    }
+                    if (count == values.length) {
+                        values = Arrays.copyOf(values, count * 2);
+                    }
+                    values[count++] = value;
+                }
+                rowStart = rowEnd + 1;
+            }
+        }
+    }
+
+    private static void invokeAll(ForkJoinPool pool, List<? extends RecursiveAction> tasks) {
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(tasks);
+            }
+        });
+    }
+
+    private static void rethrow(List<? extends ParseTask> tasks) throws ParseException {
+        for (ParseTask task : tasks) {
+            if (task.error != null) {
+                throw task.error;
+            }
+        }
+    }
+
+    private static <T> T await(ForkJoinTask<T> task) throws IOException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for chunk");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    public static void main(String[] args) throws ParseException, IOException {
+        int count = 5_000_000;
+        long[] sorted = new long[count];
+        long[] shuffled = new long[count];
+        Random random = new Random(7);
+        long t = 1_650_000_000_000L;
+        for (int i = 0; i < count; i++) {
+            t += random.nextInt(200);
+            sorted[i] = t;
+            shuffled[i] = 1_500_000_000_000L + (long) (random.nextDouble() * 300 * DAY);
+        }
+        String[] expected = new String[count];
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            expected[i] = DateUtils.formatDateTime(new Date(sorted[i]));
+        }
+        report("DateUtils.formatDateTime", count, start);
+
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        TimeZone zone = TimeZone.getDefault();
+        for (int round = 0; round < 2; round++) {
+            start = System.nanoTime();
+            String[] formatted = formatDateTime(sorted, zone, pool);
+            if (round > 0) {
+                report("formatDateTime sorted", count, start);
+                System.out.println("same as DateUtils: " + Arrays.equals(expected, formatted));
+            }
+            start = System.nanoTime();
+            formatDateTime(shuffled, zone, pool);
+            if (round > 0) {
+                report("formatDateTime shuffled", count, start);
+            }
+        }
+
+        start = System.nanoTime();
+        long[] parsedOneByOne = new long[count];
+        for (int i = 0; i < count; i++) {
+            parsedOneByOne[i] = DateUtils.parseDateTime(expected[i]).getTime();
+        }
+        report("DateUtils.parseDateTime", count, start);
+        for (int round = 0; round < 2; round++) {
+            start = System.nanoTime();
+            long[] parsed = parseDateTime(expected, zone, pool);
+            if (round > 0) {
+                report("parseDateTime String[]", count, start);
+                System.out.println("same as DateUtils: " + Arrays.equals(parsedOneByOne, parsed));
+            }
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(count * (LENGTH + 1));
+        start = System.nanoTime();
+        writeDateTime(sorted, zone, (byte) '\n', bytes, pool);
+        report("writeDateTime UTF-8", count, start);
+        byte[] column = bytes.toByteArray();
+        start = System.nanoTime();
+        long[] parsed = parseDateTime(column, (byte) '\n', zone, pool);
+        report("parseDateTime UTF-8", count, start);
+        System.out.println("round trip: " + Arrays.equals(parsedOneByOne, parsed));
+    }
+
+    private static void report(String name, int rows, long start) {
+        long nanos = System.nanoTime() - start;
+        System.out.printf("%-28s %,12.0f rows/s%n", name + ":", rows * 1e9 / nanos);
+    }
+}
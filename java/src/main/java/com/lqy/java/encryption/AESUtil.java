@@ -1,5 +1,21 @@
 package com.lqy.java.encryption;
 
+import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.SecureRandom;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
 /**
  * AES加密工具类
  *
@@ -8,6 +24,14 @@ package com.lqy.java.encryption;
  * 注意，在将字节数组转换为字符串时，可以选择指定字符集。如果不指定字符集，Java 将使用默认字符集（通常为 UTF-8）进行转换。
  */
 public class AESUtil {
+    private static final String TRANSFORMATION = "AES/ECB/PKCS5Padding";
+    private static final CipherPool CIPHERS = CipherPool.of(TRANSFORMATION);
+
+    /**
+     * 流式加解密每次送入 Cipher.update 的分块大小，内存占用与输入大小无关
+     */
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+
     /**
      * 加密
      *
@@ -17,9 +41,8 @@ public class AESUtil {
      */
     public static byte[] encrypt(String content, String password) {
         try {
-            javax.crypto.Cipher cipher = javax.crypto.Cipher.getInstance("AES/ECB/PKCS5Padding");// 创建密码器
             byte[] byteContent = content.getBytes("utf-8");
-            cipher.init(javax.crypto.Cipher.ENCRYPT_MODE, getSecretKey(password));// 初始化
+            javax.crypto.Cipher cipher = CIPHERS.get(javax.crypto.Cipher.ENCRYPT_MODE, getSecretKey(password));// 获取已初始化的密码器
             byte[] result = cipher.doFinal(byteContent);
             return result; // 加密
         } catch (Exception e) {
@@ -37,8 +60,7 @@ public class AESUtil {
      */
     public static byte[] decrypt(byte[] content, String password) {
         try {
-            javax.crypto.Cipher cipher = javax.crypto.Cipher.getInstance("AES/ECB/PKCS5Padding");// 创建密码器
-            cipher.init(javax.crypto.Cipher.DECRYPT_MODE, getSecretKey(password));// 初始化
+            javax.crypto.Cipher cipher = CIPHERS.get(javax.crypto.Cipher.DECRYPT_MODE, getSecretKey(password));// 获取已初始化的密码器
             byte[] result = cipher.doFinal(content);
             return result; // 加密
         } catch (Exception e) {
@@ -47,6 +69,143 @@ public class AESUtil {
         return null;
     }
 
+    /**
+     * 加密 input 中剩余的字节，结果写入调用方提供的 output，不经过 String 与 Base64 转换。
+     * output 的剩余空间至少为 input.remaining() + 16 字节；密钥可通过 CipherAlgorithm.AES.getSecretKey 预先生成并复用。
+     *
+     * @param input     明文
+     * @param output    密文输出缓冲区
+     * @param secretKey 密钥
+     * @return 写入 output 的字节数
+     */
+    public static int encrypt(ByteBuffer input, ByteBuffer output, javax.crypto.SecretKey secretKey) throws Exception {
+        return CipherPool.doFinal(getCipher(Cipher.ENCRYPT_MODE, secretKey), input, output);
+    }
+
+    /**
+     * 解密 input 中剩余的字节，结果写入调用方提供的 output
+     *
+     * @param input     密文
+     * @param output    明文输出缓冲区
+     * @param secretKey 密钥
+     * @return 写入 output 的字节数
+     */
+    public static int decrypt(ByteBuffer input, ByteBuffer output, javax.crypto.SecretKey secretKey) throws Exception {
+        return CipherPool.doFinal(getCipher(Cipher.DECRYPT_MODE, secretKey), input, output);
+    }
+
+    /**
+     * 流式加密，按固定大小分块调用 Cipher.update，适用于无法整体读入内存的大文件
+     * 不会关闭传入的流
+     *
+     * @param in       明文输入流
+     * @param out      密文输出流
+     * @param password 加密密码
+     * @return 写出的密文字节数
+     */
+    public static long encrypt(InputStream in, OutputStream out, String password) throws Exception {
+        return transform(Cipher.ENCRYPT_MODE, in, out, password);
+    }
+
+    /**
+     * 流式解密，按固定大小分块调用 Cipher.update
+     * 不会关闭传入的流
+     *
+     * @param in       密文输入流
+     * @param out      明文输出流
+     * @param password 解密密钥
+     * @return 写出的明文字节数
+     */
+    public static long decrypt(InputStream in, OutputStream out, String password) throws Exception {
+        return transform(Cipher.DECRYPT_MODE, in, out, password);
+    }
+
+    /**
+     * 通道到通道的流式加密，从 source 当前位置读到末尾，写入 target 当前位置
+     * 不会关闭传入的通道
+     *
+     * @param source   明文通道
+     * @param target   密文通道
+     * @param password 加密密码
+     * @return 写出的密文字节数
+     */
+    public static long encrypt(FileChannel source, FileChannel target, String password) throws Exception {
+        return transform(Cipher.ENCRYPT_MODE, source, target, password);
+    }
+
+    /**
+     * 通道到通道的流式解密，从 source 当前位置读到末尾，写入 target 当前位置
+     * 不会关闭传入的通道
+     *
+     * @param source   密文通道
+     * @param target   明文通道
+     * @param password 解密密钥
+     * @return 写出的明文字节数
+     */
+    public static long decrypt(FileChannel source, FileChannel target, String password) throws Exception {
+        return transform(Cipher.DECRYPT_MODE, source, target, password);
+    }
+
+    private static long transform(int mode, InputStream in, OutputStream out, String password) throws Exception {
+        Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+        cipher.init(mode, getSecretKey(password));
+        byte[] input = new byte[STREAM_BUFFER_SIZE];
+        // update 最多多输出一个缓存块，doFinal 最多多输出一个填充块
+        byte[] output = new byte[STREAM_BUFFER_SIZE + 2 * cipher.getBlockSize()];
+        long total = 0;
+        int bytesRead;
+        while ((bytesRead = in.read(input)) != -1) {
+            int written = cipher.update(input, 0, bytesRead, output, 0);
+            out.write(output, 0, written);
+            total += written;
+        }
+        int written = cipher.doFinal(output, 0);
+        out.write(output, 0, written);
+        return total + written;
+    }
+
+    private static long transform(int mode, FileChannel source, FileChannel target, String password) throws Exception {
+        Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+        cipher.init(mode, getSecretKey(password));
+        // 使用堆缓冲区：Cipher 可以直接操作其底层数组，直接缓冲区反而会在 Provider 内部再复制一次
+        ByteBuffer input = ByteBuffer.allocate(STREAM_BUFFER_SIZE);
+        ByteBuffer output = ByteBuffer.allocate(STREAM_BUFFER_SIZE + 2 * cipher.getBlockSize());
+        long total = 0;
+        while (source.read(input) != -1) {
+            input.flip();
+            cipher.update(input, output);
+            total += writeFully(output, target);
+            input.clear();
+        }
+        input.flip();
+        cipher.doFinal(input, output);
+        return total + writeFully(output, target);
+    }
+
+    private static int writeFully(ByteBuffer buffer, FileChannel target) throws IOException {
+        buffer.flip();
+        int length = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            target.write(buffer);
+        }
+        buffer.clear();
+        return length;
+    }
+
+    /**
+     * 派生密钥缓存：相同密码重复调用时跳过密钥派生
+     */
+    private static final SecretKeyCache KEY_CACHE = new SecretKeyCache(1024, 30, TimeUnit.MINUTES);
+
+    /**
+     * 获取派生密钥缓存，可用于查看命中/未命中统计
+     *
+     * @return 密钥缓存
+     */
+    public static SecretKeyCache getKeyCache() {
+        return KEY_CACHE;
+    }
+
     /**
      * 生成加密秘钥
      *
@@ -54,21 +213,44 @@ public class AESUtil {
      * @return
      */
     private static javax.crypto.SecretKey getSecretKey(final String password) {
-        //返回生成指定算法密钥生成器的 KeyGenerator 对象
-        javax.crypto.KeyGenerator kg = null;
         try {
-            kg = javax.crypto.KeyGenerator.getInstance("AES");
-            //AES 要求密钥长度为 128
-            kg.init(128, new java.security.SecureRandom(password.getBytes()));
-            //生成一个密钥
-            javax.crypto.SecretKey secretKey = kg.generateKey();
-            return secretKey;
+            return KEY_CACHE.get(password, AESUtil::deriveKey);
         } catch (Exception e) {
             e.printStackTrace();
         }
         return null;
     }
 
+    /**
+     * 获取当前线程已按指定模式与密钥初始化好的 Cipher
+     *
+     * @param mode      Cipher.ENCRYPT_MODE 或 Cipher.DECRYPT_MODE
+     * @param secretKey 密钥
+     * @return Cipher
+     */
+    static Cipher getCipher(int mode, javax.crypto.SecretKey secretKey) throws Exception {
+        return CIPHERS.get(mode, secretKey);
+    }
+
+    /**
+     * 由密码派生 128 位 AES 密钥
+     * <p>
+     * 与原先 KeyGenerator + new SecureRandom(seed) 的写法在 SHA1PRNG 下生成的密钥相同，
+     * 但显式指定 SUN 提供者的 SHA1PRNG：Linux 下默认的 NativePRNG 会把种子与系统熵混合，
+     * 导致同一密码每次派生出不同的密钥。
+     *
+     * @param password 密码
+     * @return 密钥
+     */
+    static javax.crypto.SecretKey deriveKey(String password) throws Exception {
+        SecureRandom random = SecureRandom.getInstance("SHA1PRNG", "SUN");
+        random.setSeed(password.getBytes(StandardCharsets.UTF_8));
+        //AES 要求密钥长度为 128
+        byte[] key = new byte[16];
+        random.nextBytes(key);
+        return new SecretKeySpec(key, "AES");
+    }
+
     public static void main(String[] args) {
         String text = "123456";
         byte[] encrypt = encrypt(text, "000");
@@ -81,5 +263,64 @@ public class AESUtil {
             System.out.println("密码错误，解密失败");
         }
 
+        System.out.println(KEY_CACHE);
+
+        try {
+            benchmarkStreaming(64);
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * 整块加密与流式加密的吞吐量对比
+     *
+     * @param sizeMb 测试数据大小（MB）
+     */
+    private static void benchmarkStreaming(int sizeMb) throws Exception {
+        byte[] data = new byte[sizeMb * 1024 * 1024];
+        new Random(42).nextBytes(data);
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) ('a' + (data[i] & 15)); // 保证 ASCII，可无损转换为 String
+        }
+        Path plain = Files.createTempFile("aes-bench", ".plain");
+        Path cipherFile = Files.createTempFile("aes-bench", ".enc");
+        try {
+            Files.write(plain, data);
+            String content = new String(data, "utf-8");
+
+            long start = System.nanoTime();
+            encrypt(content, "000");
+            report("整块加密 whole-buffer", data.length, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            encrypt(new ByteArrayInputStream(data), new DiscardOutputStream(), "000");
+            report("流式加密 InputStream", data.length, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            try (FileChannel source = FileChannel.open(plain, StandardOpenOption.READ);
+                 FileChannel target = FileChannel.open(cipherFile, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                encrypt(source, target, "000");
+            }
+            report("流式加密 FileChannel", data.length, System.nanoTime() - start);
+        } finally {
+            Files.deleteIfExists(plain);
+            Files.deleteIfExists(cipherFile);
+        }
+    }
+
+    private static void report(String name, long bytes, long nanos) {
+        double mbPerSecond = bytes / (1024.0 * 1024.0) / (nanos / 1e9);
+        System.out.printf("%-24s %8.1f MB/s%n", name, mbPerSecond);
+    }
+
+    private static class DiscardOutputStream extends OutputStream {
+        @Override
+        public void write(int b) {
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+        }
     }
 }
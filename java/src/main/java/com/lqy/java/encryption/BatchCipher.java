@@ -0,0 +1,223 @@
+package com.lqy.java.encryption;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 批量加解密工具，适合一次处理大量小数据（如整列敏感字段）。
+ * <p>
+ * 密钥只生成一次，数据按批切分后在 ForkJoinPool 中并行处理，每个工作线程复用 {@link CipherPool} 中已初始化的 Cipher，
+ * 结果按输入顺序返回。
+ * <p>
+ * 每种操作都有两种失败处理方式：encrypt/decrypt 等方法在任一元素失败时停止并抛出异常；
+ * tryEncrypt/tryDecrypt 等方法处理全部元素，逐个在 {@link BatchResult} 中记录结果或异常。
+ */
+public class BatchCipher {
+    private static final int DEFAULT_BATCH_SIZE = 256;
+
+    private final ForkJoinPool pool;
+    private final int batchSize;
+
+    public BatchCipher() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public BatchCipher(ForkJoinPool pool) {
+        this(pool, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * @param pool      执行并行任务的线程池
+     * @param batchSize 每个任务处理的元素个数
+     */
+    public BatchCipher(ForkJoinPool pool, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+        this.pool = pool;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * 批量加密字节数组
+     *
+     * @param algorithm 算法
+     * @param data      明文列表
+     * @param key       密钥
+     * @return 按输入顺序排列的密文列表
+     */
+    public List<byte[]> encrypt(CipherAlgorithm algorithm, List<byte[]> data, String key) throws Exception {
+        return this.<byte[], byte[]>run(algorithm, Cipher.ENCRYPT_MODE, data, key, true, Cipher::doFinal).getValues();
+    }
+
+    public BatchResult<byte[]> tryEncrypt(CipherAlgorithm algorithm, List<byte[]> data, String key) throws Exception {
+        return run(algorithm, Cipher.ENCRYPT_MODE, data, key, false, Cipher::doFinal);
+    }
+
+    /**
+     * 批量解密字节数组
+     *
+     * @param algorithm 算法
+     * @param data      密文列表
+     * @param key       密钥
+     * @return 按输入顺序排列的明文列表
+     */
+    public List<byte[]> decrypt(CipherAlgorithm algorithm, List<byte[]> data, String key) throws Exception {
+        return this.<byte[], byte[]>run(algorithm, Cipher.DECRYPT_MODE, data, key, true, Cipher::doFinal).getValues();
+    }
+
+    public BatchResult<byte[]> tryDecrypt(CipherAlgorithm algorithm, List<byte[]> data, String key) throws Exception {
+        return run(algorithm, Cipher.DECRYPT_MODE, data, key, false, Cipher::doFinal);
+    }
+
+    /**
+     * 批量加密字符串，输出格式与 DESUtil.encrypt 等方法一致（UTF-8 编码后加密，再做 Base64）
+     *
+     * @param algorithm 算法
+     * @param data      明文列表
+     * @param key       密钥
+     * @return 按输入顺序排列的 Base64 密文列表
+     */
+    public List<String> encryptStrings(CipherAlgorithm algorithm, List<String> data, String key) throws Exception {
+        return run(algorithm, Cipher.ENCRYPT_MODE, data, key, true, BatchCipher::encryptString).getValues();
+    }
+
+    public BatchResult<String> tryEncryptStrings(CipherAlgorithm algorithm, List<String> data, String key) throws Exception {
+        return run(algorithm, Cipher.ENCRYPT_MODE, data, key, false, BatchCipher::encryptString);
+    }
+
+    /**
+     * 批量解密 Base64 字符串，与 encryptStrings 互逆
+     *
+     * @param algorithm 算法
+     * @param data      Base64 密文列表
+     * @param key       密钥
+     * @return 按输入顺序排列的明文列表
+     */
+    public List<String> decryptStrings(CipherAlgorithm algorithm, List<String> data, String key) throws Exception {
+        return run(algorithm, Cipher.DECRYPT_MODE, data, key, true, BatchCipher::decryptString).getValues();
+    }
+
+    public BatchResult<String> tryDecryptStrings(CipherAlgorithm algorithm, List<String> data, String key) throws Exception {
+        return run(algorithm, Cipher.DECRYPT_MODE, data, key, false, BatchCipher::decryptString);
+    }
+
+    private static String encryptString(Cipher cipher, String data) throws Exception {
+        return Base64.getEncoder().encodeToString(cipher.doFinal(data.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String decryptString(Cipher cipher, String data) throws Exception {
+        return new String(cipher.doFinal(Base64.getDecoder().decode(data)), StandardCharsets.UTF_8);
+    }
+
+    private interface Transform<I, O> {
+        O apply(Cipher cipher, I input) throws Exception;
+    }
+
+    private <I, O> BatchResult<O> run(CipherAlgorithm algorithm, int mode, List<I> data, String key,
+                                      boolean failFast, Transform<I, O> transform) throws Exception {
+        Batch<I, O> batch = new Batch<>(algorithm, mode, algorithm.getSecretKey(key), data.toArray(), failFast, transform);
+        pool.invoke(new Slice(batch, 0, batch.inputs.length));
+        return new BatchResult<>(batch.values, batch.errors);
+    }
+
+    /**
+     * 一次批量调用的共享状态
+     */
+    private static final class Batch<I, O> {
+        private final CipherAlgorithm algorithm;
+        private final int mode;
+        private final SecretKey secretKey;
+        private final Object[] inputs;
+        private final Object[] values;
+        private final Exception[] errors;
+        private final boolean failFast;
+        private final Transform<I, O> transform;
+        private final AtomicBoolean aborted = new AtomicBoolean();
+
+        private Batch(CipherAlgorithm algorithm, int mode, SecretKey secretKey, Object[] inputs,
+                      boolean failFast, Transform<I, O> transform) {
+            this.algorithm = algorithm;
+            this.mode = mode;
+            this.secretKey = secretKey;
+            this.inputs = inputs;
+            this.values = new Object[inputs.length];
+            this.errors = new Exception[inputs.length];
+            this.failFast = failFast;
+            this.transform = transform;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void process(int from, int to) {
+            for (int i = from; i < to && !aborted.get(); i++) {
+                try {
+                    Cipher cipher = algorithm.getCipher(mode, secretKey);
+                    values[i] = transform.apply(cipher, (I) inputs[i]);
+                } catch (Exception e) {
+                    errors[i] = e;
+                    if (failFast) {
+                        aborted.set(true);
+                    }
+                }
+            }
+        }
+    }
+
+    private final class Slice extends RecursiveAction {
+        private final Batch<?, ?> batch;
+        private final int from;
+        private final int to;
+
+        private Slice(Batch<?, ?> batch, int from, int to) {
+            this.batch = batch;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > batchSize) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new Slice(batch, from, middle), new Slice(batch, middle, to));
+            } else {
+                batch.process(from, to);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> data = new ArrayList<>();
+        for (int i = 0; i < 200_000; i++) {
+            data.add("13800" + String.format("%06d", i));
+        }
+        String key = "12345678";
+        BatchCipher batchCipher = new BatchCipher();
+        // 预热
+        batchCipher.encryptStrings(CipherAlgorithm.DES, data, key);
+
+        long start = System.nanoTime();
+        List<String> serial = new ArrayList<>(data.size());
+        for (String value : data) {
+            serial.add(DESUtil.encrypt(value, key));
+        }
+        System.out.printf("逐个加密 DESUtil.encrypt: %d ms%n", (System.nanoTime() - start) / 1_000_000);
+
+        start = System.nanoTime();
+        List<String> batch = batchCipher.encryptStrings(CipherAlgorithm.DES, data, key);
+        System.out.printf("批量加密 BatchCipher:     %d ms, 结果一致: %s%n",
+                (System.nanoTime() - start) / 1_000_000, serial.equals(batch));
+
+        List<String> corrupted = new ArrayList<>(batch.subList(0, 5));
+        corrupted.set(2, "not-base64!");
+        BatchResult<String> result = batchCipher.tryDecryptStrings(CipherAlgorithm.DES, corrupted, key);
+        System.out.println("失败元素: " + result.getFailedIndexes() + " -> " + result.getError(2));
+        System.out.println("第一个元素: " + result.get(0));
+    }
+}
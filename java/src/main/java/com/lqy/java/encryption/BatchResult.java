@@ -0,0 +1,86 @@
+package com.lqy.java.encryption;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 批量加解密结果，按输入顺序逐个记录每个元素的结果或异常
+ *
+ * @param <T> 结果类型
+ */
+public class BatchResult<T> {
+    private final Object[] values;
+    private final Exception[] errors;
+    private final int failureCount;
+
+    BatchResult(Object[] values, Exception[] errors) {
+        this.values = values;
+        this.errors = errors;
+        int failures = 0;
+        for (Exception error : errors) {
+            if (error != null) {
+                failures++;
+            }
+        }
+        this.failureCount = failures;
+    }
+
+    public int size() {
+        return values.length;
+    }
+
+    public boolean isSuccess(int index) {
+        return errors[index] == null;
+    }
+
+    public boolean isAllSuccess() {
+        return failureCount == 0;
+    }
+
+    public int getFailureCount() {
+        return failureCount;
+    }
+
+    /**
+     * 获取第 index 个元素的结果，失败的元素返回 null
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        return (T) values[index];
+    }
+
+    /**
+     * 获取第 index 个元素的异常，成功的元素返回 null
+     */
+    public Exception getError(int index) {
+        return errors[index];
+    }
+
+    /**
+     * 获取所有失败元素的下标
+     */
+    public List<Integer> getFailedIndexes() {
+        List<Integer> indexes = new ArrayList<>(failureCount);
+        for (int i = 0; i < errors.length; i++) {
+            if (errors[i] != null) {
+                indexes.add(i);
+            }
+        }
+        return indexes;
+    }
+
+    /**
+     * 按输入顺序返回全部结果，有任一元素失败时抛出第一个失败元素的异常
+     */
+    @SuppressWarnings("unchecked")
+    public List<T> getValues() throws Exception {
+        for (int i = 0; i < errors.length; i++) {
+            if (errors[i] != null) {
+                throw new Exception("batch element " + i + " failed", errors[i]);
+            }
+        }
+        return Collections.unmodifiableList((List<T>) Arrays.asList(values));
+    }
+}
@@ -0,0 +1,123 @@
+package com.lqy.java.encryption;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+
+/**
+ * 加密工具包支持的算法，统一各工具类的密钥生成与 Cipher 获取方式，供批量等通用入口使用。
+ * 各算法的密钥格式与对应工具类保持一致。
+ */
+public enum CipherAlgorithm {
+    AES {
+        @Override
+        public SecretKey getSecretKey(String key) throws Exception {
+            return AESUtil.getKeyCache().get(key, AESUtil::deriveKey);
+        }
+
+        @Override
+        public Cipher getCipher(int mode, SecretKey secretKey) throws Exception {
+            return AESUtil.getCipher(mode, secretKey);
+        }
+    },
+    DES {
+        @Override
+        public SecretKey getSecretKey(String key) throws Exception {
+            return DESUtil.getSecretKey(key);
+        }
+
+        @Override
+        public Cipher getCipher(int mode, SecretKey secretKey) throws Exception {
+            return DESUtil.getCipher(mode, secretKey);
+        }
+    },
+    TRIPLE_DES {
+        @Override
+        public SecretKey getSecretKey(String key) throws Exception {
+            return TripleDESUtil.getSecretKey(key);
+        }
+
+        @Override
+        public Cipher getCipher(int mode, SecretKey secretKey) throws Exception {
+            return TripleDESUtil.getCipher(mode, secretKey);
+        }
+    },
+    RC4 {
+        @Override
+        public SecretKey getSecretKey(String key) throws Exception {
+            return RC4Util.getSecretKey(key);
+        }
+
+        @Override
+        public Cipher getCipher(int mode, SecretKey secretKey) throws Exception {
+            return RC4Util.getCipher(mode, secretKey);
+        }
+    },
+    RC5 {
+        @Override
+        public SecretKey getSecretKey(String key) throws Exception {
+            return RC5Util.getSecretKey(key);
+        }
+
+        @Override
+        public Cipher getCipher(int mode, SecretKey secretKey) throws Exception {
+            return RC5Util.getCipher(mode, secretKey);
+        }
+    };
+
+    /**
+     * 由字符串密钥生成 SecretKey
+     *
+     * @param key 密钥
+     * @return SecretKey
+     */
+    public abstract SecretKey getSecretKey(String key) throws Exception;
+
+    /**
+     * 获取当前线程已按指定模式与密钥初始化好的 Cipher，只能用于一次 doFinal 调用
+     *
+     * @param mode      Cipher.ENCRYPT_MODE 或 Cipher.DECRYPT_MODE
+     * @param secretKey 密钥
+     * @return Cipher
+     */
+    public abstract Cipher getCipher(int mode, SecretKey secretKey) throws Exception;
+
+    /**
+     * 分配量测试：预热后统计 ByteBuffer 接口每次加密+解密在当前线程上分配的字节数
+     */
+    public static void main(String[] args) throws Exception {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        String[] keys = {"000", "12345678", "123456789012345678901234", "12345678", "12345678"};
+        int iterations = 100_000;
+        for (boolean direct : new boolean[]{false, true}) {
+            for (CipherAlgorithm algorithm : values()) {
+                SecretKey secretKey = algorithm.getSecretKey(keys[algorithm.ordinal()]);
+                ByteBuffer plain = direct ? ByteBuffer.allocateDirect(256) : ByteBuffer.allocate(256);
+                ByteBuffer encrypted = direct ? ByteBuffer.allocateDirect(512) : ByteBuffer.allocate(512);
+                ByteBuffer decrypted = direct ? ByteBuffer.allocateDirect(512) : ByteBuffer.allocate(512);
+                for (int i = 0; i < iterations; i++) {
+                    roundTrip(algorithm, secretKey, plain, encrypted, decrypted);
+                }
+                long before = threads.getThreadAllocatedBytes(threadId);
+                for (int i = 0; i < iterations; i++) {
+                    roundTrip(algorithm, secretKey, plain, encrypted, decrypted);
+                }
+                long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+                System.out.printf("%-10s %-6s %8.1f bytes/op%n", algorithm, direct ? "direct" : "heap",
+                        (double) allocated / iterations);
+            }
+        }
+    }
+
+    private static void roundTrip(CipherAlgorithm algorithm, SecretKey secretKey,
+                                  ByteBuffer plain, ByteBuffer encrypted, ByteBuffer decrypted) throws Exception {
+        plain.clear().limit(200);
+        encrypted.clear();
+        decrypted.clear();
+        CipherPool.doFinal(algorithm.getCipher(Cipher.ENCRYPT_MODE, secretKey), plain, encrypted);
+        encrypted.flip();
+        CipherPool.doFinal(algorithm.getCipher(Cipher.DECRYPT_MODE, secretKey), encrypted, decrypted);
+    }
+}
@@ -0,0 +1,233 @@
+package com.lqy.java.encryption;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.ShortBufferException;
+import java.nio.ByteBuffer;
+import java.security.Key;
+import java.security.spec.AlgorithmParameterSpec;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cipher 实例池，每个线程按 转换名 + 提供者 持有一个 Cipher 实例。
+ * <p>
+ * Cipher.getInstance 每次都要经过同步的提供者查找并创建新对象，高并发下会成为竞争热点。
+ * 通过 {@link #of(String)} 取得的池对象是全局共享的，{@link #get(int, Key)} 返回当前线程专属的实例，
+ * 每种模式（加密、解密等）各一个，密钥、参数与该实例上次初始化完全相同（同一对象）时跳过 init，否则重新 init。
+ * <p>
+ * 注意：取得的实例只应用于一次完整的 doFinal 调用（doFinal 结束后 Cipher 会回到初始化后的状态），
+ * 不要在多次调用之间持有，也不要跨线程传递。需要跨多次 update 持有 Cipher 的场景（如流式加解密）请直接创建实例。
+ */
+public final class CipherPool {
+    private static final ConcurrentMap<String, CipherPool> POOLS = new ConcurrentHashMap<>();
+
+    /**
+     * 直接缓冲区中转用的线程私有数组的上限，超过时交给 Cipher 自己处理
+     */
+    private static final int MAX_SCRATCH_SIZE = 1024 * 1024;
+    private static final ThreadLocal<byte[][]> SCRATCH = ThreadLocal.withInitial(() -> new byte[2][0]);
+
+    private final String transformation;
+    private final String provider;
+    /**
+     * 按 Cipher 模式常量（1~4）下标存放，加解密交替进行时互不触发重新初始化
+     */
+    private final ThreadLocal<PooledCipher[]> local = ThreadLocal.withInitial(() -> new PooledCipher[Cipher.UNWRAP_MODE + 1]);
+
+    private CipherPool(String transformation, String provider) {
+        this.transformation = transformation;
+        this.provider = provider;
+    }
+
+    /**
+     * 获取使用默认提供者的池
+     *
+     * @param transformation 转换名，如 AES/ECB/PKCS5Padding
+     * @return 池
+     */
+    public static CipherPool of(String transformation) {
+        return of(transformation, null);
+    }
+
+    /**
+     * 获取指定提供者的池
+     *
+     * @param transformation 转换名，如 RC5/CBC/PKCS7Padding
+     * @param provider       提供者名称，为 null 时使用默认提供者
+     * @return 池
+     */
+    public static CipherPool of(String transformation, String provider) {
+        String name = provider == null ? transformation : transformation + "@" + provider;
+        return POOLS.computeIfAbsent(name, k -> new CipherPool(transformation, provider));
+    }
+
+    /**
+     * 获取当前线程已按指定模式与密钥初始化好的 Cipher
+     *
+     * @param mode Cipher.ENCRYPT_MODE 或 Cipher.DECRYPT_MODE
+     * @param key  密钥
+     * @return Cipher
+     */
+    public Cipher get(int mode, Key key) throws Exception {
+        return get(mode, key, null);
+    }
+
+    /**
+     * 获取当前线程已按指定模式、密钥与参数初始化好的 Cipher
+     *
+     * @param mode   Cipher.ENCRYPT_MODE 或 Cipher.DECRYPT_MODE
+     * @param key    密钥
+     * @param params 算法参数（如 IV），可以为 null
+     * @return Cipher
+     */
+    public Cipher get(int mode, Key key, AlgorithmParameterSpec params) throws Exception {
+        if (mode < Cipher.ENCRYPT_MODE || mode > Cipher.UNWRAP_MODE) {
+            throw new IllegalArgumentException("Invalid cipher mode: " + mode);
+        }
+        PooledCipher[] pooled = local.get();
+        if (pooled[mode] == null) {
+            Cipher cipher = provider == null
+                    ? Cipher.getInstance(transformation)
+                    : Cipher.getInstance(transformation, provider);
+            pooled[mode] = new PooledCipher(cipher);
+        }
+        return pooled[mode].init(mode, key, params);
+    }
+
+    /**
+     * 丢弃当前线程持有的全部实例，例如使用过程中抛出异常、状态不确定时
+     */
+    public void discard() {
+        local.remove();
+    }
+
+    /**
+     * 与 {@link Cipher#doFinal(ByteBuffer, ByteBuffer)} 相同，但非堆缓冲区（如直接缓冲区）经线程私有的数组中转，
+     * 避免 CipherSpi 每次调用都分配临时数组
+     *
+     * @param cipher 已初始化的 Cipher
+     * @param input  输入
+     * @param output 输出
+     * @return 写入 output 的字节数
+     */
+    static int doFinal(Cipher cipher, ByteBuffer input, ByteBuffer output) throws Exception {
+        int length = input.remaining();
+        if ((input.hasArray() && output.hasArray()) || length > MAX_SCRATCH_SIZE) {
+            return cipher.doFinal(input, output);
+        }
+        int outputSize = cipher.getOutputSize(length);
+        if (output.remaining() < outputSize) {
+            throw new ShortBufferException("Need at least " + outputSize + " bytes of space in output buffer");
+        }
+        byte[][] scratch = SCRATCH.get();
+        if (scratch[0].length < length) {
+            scratch[0] = new byte[length];
+        }
+        if (scratch[1].length < outputSize) {
+            scratch[1] = new byte[outputSize];
+        }
+        int position = input.position();
+        input.get(scratch[0], 0, length);
+        try {
+            int written = cipher.doFinal(scratch[0], 0, length, scratch[1], 0);
+            output.put(scratch[1], 0, written);
+            return written;
+        } catch (Exception e) {
+            input.position(position);
+            throw e;
+        }
+    }
+
+    public String getTransformation() {
+        return transformation;
+    }
+
+    public String getProvider() {
+        return provider;
+    }
+
+    private static final class PooledCipher {
+        private final Cipher cipher;
+        private int mode = -1;
+        private Key key;
+        private AlgorithmParameterSpec params;
+
+        private PooledCipher(Cipher cipher) {
+            this.cipher = cipher;
+        }
+
+        private Cipher init(int mode, Key key, AlgorithmParameterSpec params) throws Exception {
+            if (mode != this.mode || key != this.key || params != this.params) {
+                // 先清空，init 失败时不会误用旧状态
+                this.key = null;
+                if (params == null) {
+                    cipher.init(mode, key);
+                } else {
+                    cipher.init(mode, key, params);
+                }
+                this.mode = mode;
+                this.key = key;
+                this.params = params;
+            }
+            return cipher;
+        }
+    }
+
+    /**
+     * 并发对比：每次 Cipher.getInstance + init 与使用池
+     */
+    public static void main(String[] args) throws Exception {
+        SecretKey key = AESUtil.deriveKey("000");
+        byte[] payload = new byte[64];
+        CipherPool pool = CipherPool.of("AES/ECB/PKCS5Padding");
+        int[] threadCounts = {1, 8, 64};
+        // 预热
+        measure(1, () -> pool.get(Cipher.ENCRYPT_MODE, key).doFinal(payload));
+        for (int threads : threadCounts) {
+            double direct = measure(threads, () -> {
+                Cipher cipher = Cipher.getInstance("AES/ECB/PKCS5Padding");
+                cipher.init(Cipher.ENCRYPT_MODE, key);
+                cipher.doFinal(payload);
+            });
+            double pooled = measure(threads, () -> pool.get(Cipher.ENCRYPT_MODE, key).doFinal(payload));
+            System.out.printf("threads=%-3d getInstance %,12.0f ops/s   pooled %,12.0f ops/s   x%.1f%n",
+                    threads, direct, pooled, pooled / direct);
+        }
+    }
+
+    private interface Operation {
+        void run() throws Exception;
+    }
+
+    private static double measure(int threads, Operation operation) throws InterruptedException {
+        long durationNanos = TimeUnit.SECONDS.toNanos(1);
+        LongAdder ops = new LongAdder();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            new Thread(() -> {
+                try {
+                    start.await();
+                    long end = System.nanoTime() + durationNanos;
+                    long count = 0;
+                    while (System.nanoTime() < end) {
+                        operation.run();
+                        count++;
+                    }
+                    ops.add(count);
+                } catch (Exception e) {
+                    e.printStackTrace();
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        start.countDown();
+        done.await();
+        return ops.sum() * 1e9 / durationNanos;
+    }
+}
@@ -6,6 +6,7 @@ import javax.crypto.Cipher;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.security.Security;
 import java.util.Base64;
@@ -25,33 +26,76 @@ public class RC5Util {
     private static final String ALGORITHM = "RC5";
     private static final String TRANSFORMATION = "RC5/CBC/PKCS7Padding";
     private static final byte[] IV = new byte[8]; // 初始化向量 (IV) 的字节数组，长度为 8 字节
+    private static final IvParameterSpec IV_PARAMETER_SPEC = new IvParameterSpec(IV);
 
     static {
         Security.addProvider(new BouncyCastleProvider());
     }
 
-    public static String encrypt(String data, String key) throws Exception {
-        SecretKey secretKey = new SecretKeySpec(key.getBytes(StandardCharsets.UTF_8), ALGORITHM);
-        IvParameterSpec ivParameterSpec = new IvParameterSpec(IV);
+    private static final CipherPool CIPHERS = CipherPool.of(TRANSFORMATION, "BC");
 
-        Cipher cipher = Cipher.getInstance(TRANSFORMATION, "BC");
-        cipher.init(Cipher.ENCRYPT_MODE, secretKey, ivParameterSpec);
+    public static String encrypt(String data, String key) throws Exception {
+        SecretKey secretKey = getSecretKey(key);
+        Cipher cipher = getCipher(Cipher.ENCRYPT_MODE, secretKey);
         byte[] encryptedData = cipher.doFinal(data.getBytes(StandardCharsets.UTF_8));
 
         return Base64.getEncoder().encodeToString(encryptedData);
     }
 
     public static String decrypt(String encryptedData, String key) throws Exception {
-        SecretKey secretKey = new SecretKeySpec(key.getBytes(StandardCharsets.UTF_8), ALGORITHM);
-        IvParameterSpec ivParameterSpec = new IvParameterSpec(IV);
-
-        Cipher cipher = Cipher.getInstance(TRANSFORMATION, "BC");
-        cipher.init(Cipher.DECRYPT_MODE, secretKey, ivParameterSpec);
+        SecretKey secretKey = getSecretKey(key);
+        Cipher cipher = getCipher(Cipher.DECRYPT_MODE, secretKey);
         byte[] decryptedData = cipher.doFinal(Base64.getDecoder().decode(encryptedData));
 
         return new String(decryptedData, StandardCharsets.UTF_8);
     }
 
+    /**
+     * 加密 input 中剩余的字节，结果写入调用方提供的 output，不经过 String 与 Base64 转换。
+     * output 的剩余空间至少为 input.remaining() + 8 字节；密钥可通过 CipherAlgorithm.RC5.getSecretKey 预先生成并复用。
+     *
+     * @param input     明文
+     * @param output    密文输出缓冲区
+     * @param secretKey 密钥
+     * @return 写入 output 的字节数
+     */
+    public static int encrypt(ByteBuffer input, ByteBuffer output, SecretKey secretKey) throws Exception {
+        return CipherPool.doFinal(getCipher(Cipher.ENCRYPT_MODE, secretKey), input, output);
+    }
+
+    /**
+     * 解密 input 中剩余的字节，结果写入调用方提供的 output
+     *
+     * @param input     密文
+     * @param output    明文输出缓冲区
+     * @param secretKey 密钥
+     * @return 写入 output 的字节数
+     */
+    public static int decrypt(ByteBuffer input, ByteBuffer output, SecretKey secretKey) throws Exception {
+        return CipherPool.doFinal(getCipher(Cipher.DECRYPT_MODE, secretKey), input, output);
+    }
+
+    /**
+     * 由字符串密钥生成 SecretKey
+     *
+     * @param key 密钥
+     * @return SecretKey
+     */
+    static SecretKey getSecretKey(String key) throws Exception {
+        return new SecretKeySpec(key.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+    }
+
+    /**
+     * 获取当前线程已按指定模式与密钥初始化好的 Cipher
+     *
+     * @param mode      Cipher.ENCRYPT_MODE 或 Cipher.DECRYPT_MODE
+     * @param secretKey 密钥
+     * @return Cipher
+     */
+    static Cipher getCipher(int mode, SecretKey secretKey) throws Exception {
+        return CIPHERS.get(mode, secretKey, IV_PARAMETER_SPEC);
+    }
+
     public static void main(String[] args) {
         String data = "Hello, World!";
         String key = "12345678"; // RC5 密钥长度可以是任意长度，但推荐至少为 8 个字节
@@ -0,0 +1,166 @@
+package com.lqy.java.encryption;
+
+import javax.crypto.SecretKey;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 派生密钥缓存，线程安全。
+ * <p>
+ * 以密码的 SHA-256 摘要（而不是密码明文）作为缓存键，缓存已派生好的 SecretKey，
+ * 避免每次加解密都重新执行一遍密钥派生。支持按容量（LRU）与按写入时间两种淘汰方式，并提供命中/未命中计数。
+ */
+public class SecretKeyCache {
+
+    /**
+     * 密钥派生函数
+     */
+    public interface KeyDeriver {
+        SecretKey derive(String password) throws Exception;
+    }
+
+    private final int maximumSize;
+    private final long expireAfterWriteNanos;
+    private final LinkedHashMap<ByteBuffer, CachedKey> entries;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param maximumSize      最多缓存的密钥数量
+     * @param expireAfterWrite 写入后的存活时间，小于等于 0 表示不过期
+     * @param unit             存活时间单位
+     */
+    public SecretKeyCache(int maximumSize, long expireAfterWrite, TimeUnit unit) {
+        if (maximumSize <= 0) {
+            throw new IllegalArgumentException("maximumSize must be positive: " + maximumSize);
+        }
+        this.maximumSize = maximumSize;
+        this.expireAfterWriteNanos = expireAfterWrite > 0 ? unit.toNanos(expireAfterWrite) : 0;
+        this.entries = new LinkedHashMap<ByteBuffer, CachedKey>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<ByteBuffer, CachedKey> eldest) {
+                if (size() > SecretKeyCache.this.maximumSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * 获取密码对应的密钥，缓存未命中时调用 deriver 派生并放入缓存
+     *
+     * @param password 密码
+     * @param deriver  密钥派生函数
+     * @return 密钥
+     */
+    public SecretKey get(String password, KeyDeriver deriver) throws Exception {
+        ByteBuffer digest = digest(password);
+        long now = System.nanoTime();
+        synchronized (entries) {
+            CachedKey entry = entries.get(digest);
+            if (entry != null) {
+                if (!entry.isExpired(now)) {
+                    hits.increment();
+                    return entry.key;
+                }
+                entries.remove(digest);
+                evictions.increment();
+            }
+        }
+        misses.increment();
+        // 派生过程较慢，不在锁内执行；并发未命中时可能重复派生，但结果相同
+        SecretKey key = deriver.derive(password);
+        synchronized (entries) {
+            entries.put(digest, new CachedKey(key, now));
+        }
+        return key;
+    }
+
+    /**
+     * 清理所有已过期的密钥
+     */
+    public void cleanUp() {
+        long now = System.nanoTime();
+        synchronized (entries) {
+            Iterator<CachedKey> iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().isExpired(now)) {
+                    iterator.remove();
+                    evictions.increment();
+                }
+            }
+        }
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    public long evictionCount() {
+        return evictions.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "SecretKeyCache{size=" + size() + ", hits=" + hitCount() + ", misses=" + missCount()
+                + ", evictions=" + evictionCount() + "}";
+    }
+
+    private static ByteBuffer digest(String password) throws Exception {
+        MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+        return ByteBuffer.wrap(sha256.digest(password.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private final class CachedKey {
+        private final SecretKey key;
+        private final long createdNanos;
+
+        private CachedKey(SecretKey key, long createdNanos) {
+            this.key = key;
+            this.createdNanos = createdNanos;
+        }
+
+        private boolean isExpired(long now) {
+            return expireAfterWriteNanos > 0 && now - createdNanos >= expireAfterWriteNanos;
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        SecretKeyCache cache = new SecretKeyCache(2, 1, TimeUnit.MINUTES);
+        KeyDeriver deriver = AESUtil::deriveKey;
+        cache.get("000", deriver);
+        cache.get("000", deriver);
+        cache.get("111", deriver);
+        cache.get("222", deriver);
+        System.out.println(cache);
+    }
+}
@@ -0,0 +1,219 @@
+package com.lqy.java.file;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * 原子、崩溃安全的文件写入
+ * atomic, crash-safe file writes
+ * <p>
+ * 内容先写到目标所在目录下的临时文件：按已知大小一次设置文件长度，经直接缓冲区写入 FileChannel，force 到磁盘，
+ * 再用 ATOMIC_MOVE 重命名覆盖目标文件，最后 force 所在目录使重命名本身持久化。
+ * 读取方要么看到旧文件，要么看到完整的新文件，不会看到写了一半的内容；写入失败时临时文件被删除，目标文件不变。
+ * <p>
+ * {@link #writeAll} 批量提交多个小文件：各自写临时文件并 force，重命名后每个目录只 force 一次。
+ */
+public class AtomicFileWriter {
+
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    private static final ThreadLocal<ByteBuffer> BUFFER = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(BUFFER_SIZE));
+
+    private static final FileAttribute<Set<PosixFilePermission>> OWNER_ONLY =
+            PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------"));
+
+    /**
+     * 原子地写入文件，目标文件存在时替换
+     * write content to target atomically
+     * @param target  目标文件
+     * @param content 内容
+     * @throws IOException 写入失败，目标文件保持原样
+     */
+    public static void write(Path target, byte[] content) throws IOException {
+        Path temp = writeTemp(target, content);
+        commit(temp, target);
+        syncDirectory(parentOf(target));
+    }
+
+    /**
+     * 原子地批量写入多个文件：每个文件单独原子替换，所有重命名完成后每个目录只 force 一次。
+     * 中途失败时已经提交的文件保留新内容，未提交文件的临时文件被删除。
+     * write many files, syncing each directory only once
+     * @param files 目标文件与内容
+     * @throws IOException
+     */
+    public static void writeAll(Map<Path, byte[]> files) throws IOException {
+        Map<Path, Path> temps = new LinkedHashMap<>();
+        try {
+            for (Map.Entry<Path, byte[]> file : files.entrySet()) {
+                temps.put(file.getKey(), writeTemp(file.getKey(), file.getValue()));
+            }
+            Set<Path> directories = new LinkedHashSet<>();
+            for (Map.Entry<Path, Path> entry : temps.entrySet()) {
+                commit(entry.getValue(), entry.getKey());
+                directories.add(parentOf(entry.getKey()));
+            }
+            for (Path directory : directories) {
+                syncDirectory(directory);
+            }
+        } finally {
+            // 已重命名的临时文件不再存在，这里只清理未提交的
+            for (Path temp : temps.values()) {
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+
+    /**
+     * 把内容写到目标目录下的临时文件并 force，返回临时文件
+     */
+    private static Path writeTemp(Path target, byte[] content) throws IOException {
+        Path temp = createTemp(target);
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            preallocate(channel, content.length);
+            ByteBuffer buffer = BUFFER.get();
+            long position = 0;
+            while (position < content.length) {
+                int length = (int) Math.min(buffer.capacity(), content.length - position);
+                buffer.clear();
+                buffer.put(content, (int) position, length);
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    position += channel.write(buffer, position);
+                }
+            }
+            channel.force(true);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        return temp;
+    }
+
+    /**
+     * 一次设置为最终大小，避免逐块增长带来的多次元数据更新（Java 没有 fallocate，文件系统可能按稀疏文件处理）
+     */
+    private static void preallocate(FileChannel channel, long size) throws IOException {
+        if (size > 0) {
+            channel.write(ByteBuffer.allocate(1), size - 1);
+        }
+    }
+
+    /**
+     * 在目标目录下创建临时文件，权限与替换后应有的权限相同：
+     * 目标文件存在时先以只有属主可读写创建，再复制目标文件的权限；
+     * 目标文件不存在时不指定权限创建，与普通新建文件一样由 umask（及目录的默认 ACL）决定
+     */
+    private static Path createTemp(Path target) throws IOException {
+        Path directory = parentOf(target);
+        String prefix = "." + target.getFileName();
+        Set<PosixFilePermission> permissions = permissionsOf(target);
+        while (true) {
+            Path temp = directory.resolve(prefix + Long.toUnsignedString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+            try {
+                if (permissions == null) {
+                    return Files.createFile(temp);
+                }
+                Files.createFile(temp, OWNER_ONLY);
+            } catch (FileAlreadyExistsException e) {
+                continue;
+            }
+            try {
+                Files.setPosixFilePermissions(temp, permissions);
+            } catch (IOException | RuntimeException e) {
+                Files.deleteIfExists(temp);
+                throw e;
+            }
+            return temp;
+        }
+    }
+
+    /**
+     * 目标文件的权限，文件不存在或不是 POSIX 文件系统时返回 null
+     */
+    private static Set<PosixFilePermission> permissionsOf(Path target) throws IOException {
+        try {
+            return Files.getPosixFilePermissions(target);
+        } catch (NoSuchFileException | UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
+    private static void commit(Path temp, Path target) throws IOException {
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    /**
+     * force 目录，使其中的重命名持久化；部分平台（如 Windows）不能打开目录，此时跳过，force 本身的失败照常抛出
+     */
+    private static void syncDirectory(Path directory) throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(directory, StandardOpenOption.READ);
+        } catch (AccessDeniedException e) {
+            // 当前平台不能以文件方式打开目录，不支持目录 fsync
+            return;
+        }
+        try (FileChannel opened = channel) {
+            opened.force(true);
+        }
+    }
+
+    private static Path parentOf(Path target) {
+        Path parent = target.toAbsolutePath().getParent();
+        if (parent == null) {
+            throw new IllegalArgumentException("Target has no parent directory: " + target);
+        }
+        return parent;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path dir = Files.createTempDirectory("atomic");
+        try {
+            byte[] large = new byte[64 * 1024 * 1024];
+            Path target = dir.resolve("data.bin");
+            long start = System.nanoTime();
+            write(target, large);
+            System.out.printf("write 64 MB: %d ms%n", (System.nanoTime() - start) / 1_000_000);
+
+            int count = 500;
+            Map<Path, byte[]> small = new LinkedHashMap<>();
+            for (int i = 0; i < count; i++) {
+                small.put(dir.resolve("config-" + i + ".json"), ("{\"id\":" + i + "}").getBytes());
+            }
+            start = System.nanoTime();
+            for (Map.Entry<Path, byte[]> file : small.entrySet()) {
+                write(file.getKey(), file.getValue());
+            }
+            System.out.printf("write x %d: %d ms%n", count, (System.nanoTime() - start) / 1_000_000);
+            start = System.nanoTime();
+            writeAll(small);
+            System.out.printf("writeAll %d: %d ms%n", count, (System.nanoTime() - start) / 1_000_000);
+            System.out.println("config-7.json: " + new String(Files.readAllBytes(dir.resolve("config-7.json"))));
+        } finally {
+            DirectoryWalker.of(dir).collect().forEach(path -> path.toFile().delete());
+            Files.deleteIfExists(dir);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.lqy.java.file;
+
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 有界直接缓冲区池，限制并行读取时占用的堆外内存
+ * bounded pool of direct buffers
+ * <p>
+ * 缓冲区按需创建，最多 maxBuffers 个；全部借出时 acquire 等待归还。
+ */
+final class BufferPool {
+    private final int bufferSize;
+    private final int maxBuffers;
+    private final BlockingQueue<ByteBuffer> free;
+    private final AtomicInteger created = new AtomicInteger();
+
+    BufferPool(int bufferSize, int maxBuffers) {
+        this.bufferSize = bufferSize;
+        this.maxBuffers = maxBuffers;
+        this.free = new ArrayBlockingQueue<>(maxBuffers);
+    }
+
+    int bufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * 借出一个已清空的缓冲区
+     */
+    ByteBuffer acquire() throws InterruptedIOException {
+        ByteBuffer buffer = free.poll();
+        if (buffer == null) {
+            int count;
+            while ((count = created.get()) < maxBuffers) {
+                if (created.compareAndSet(count, count + 1)) {
+                    return ByteBuffer.allocateDirect(bufferSize);
+                }
+            }
+            try {
+                buffer = free.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for a buffer");
+            }
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    void release(ByteBuffer buffer) {
+        free.offer(buffer);
+    }
+}
@@ -0,0 +1,247 @@
+package com.lqy.java.file;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 基于 FileChannel 的文件复制与合并
+ * channel based file copy and merge
+ * <p>
+ * 顺序复制、合并使用源通道的 transferTo（Linux 上为 sendfile 零拷贝）；并行合并需要多个线程按偏移量写同一个目标，
+ * 使用目标通道的 transferFrom，FileChannel 之间由 JDK 分块映射源文件后复制，不是 sendfile，但数据同样不经过 Java 堆。
+ * 当前平台或通道不支持时退化为线程私有的大块直接缓冲区复制。每次操作返回传输字节数与耗时。
+ */
+public class ChannelCopier {
+
+    /**
+     * 零拷贝不可用时使用的直接缓冲区大小
+     */
+    private static final int BUFFER_SIZE = 1024 * 1024;
+
+    private static final ThreadLocal<ByteBuffer> BUFFER = ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(BUFFER_SIZE));
+
+    /**
+     * 传输统计
+     * transfer statistics
+     */
+    public static final class TransferStats {
+        private final long bytes;
+        private final long nanos;
+
+        TransferStats(long bytes, long nanos) {
+            this.bytes = bytes;
+            this.nanos = nanos;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+
+        public double getBytesPerSecond() {
+            return nanos == 0 ? 0 : bytes * 1e9 / nanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d bytes in %.1f ms (%.1f MB/s)", bytes, nanos / 1e6, getBytesPerSecond() / (1024 * 1024));
+        }
+    }
+
+    /**
+     * 复制文件，目标文件存在时覆盖
+     * copy file, replacing the target if it exists
+     * @param source 源文件
+     * @param target 目标文件
+     * @return 传输统计
+     * @throws IOException
+     */
+    public static TransferStats copy(Path source, Path target) throws IOException {
+        return merge(Arrays.asList(source), target);
+    }
+
+    /**
+     * 按顺序将多个源文件合并到目标文件，目标文件存在时覆盖
+     * merge source files into target in order
+     * @param sources 源文件列表
+     * @param target  目标文件
+     * @return 传输统计
+     * @throws IOException
+     */
+    public static TransferStats merge(List<Path> sources, Path target) throws IOException {
+        long start = System.nanoTime();
+        long total = 0;
+        try (FileChannel out = FileChannel.open(target, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (Path source : sources) {
+                try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ)) {
+                    total += transferTo(in, out, total);
+                }
+            }
+        }
+        return new TransferStats(total, System.nanoTime() - start);
+    }
+
+    /**
+     * 并行合并：先按源文件总大小预分配目标文件，再由多个线程把各源文件写到各自的偏移量
+     * merge source files in parallel, each written at its own offset of a preallocated target
+     * @param sources 源文件列表
+     * @param target  目标文件
+     * @param pool    线程池
+     * @return 传输统计
+     * @throws IOException
+     */
+    public static TransferStats mergeParallel(List<Path> sources, Path target, ForkJoinPool pool) throws IOException {
+        long start = System.nanoTime();
+        long[] offsets = new long[sources.size()];
+        long total = 0;
+        for (int i = 0; i < sources.size(); i++) {
+            offsets[i] = total;
+            total += Files.size(sources.get(i));
+        }
+        try (RandomAccessFile file = new RandomAccessFile(target.toFile(), "rw")) {
+            file.setLength(total);
+            FileChannel out = file.getChannel();
+            List<MergeTask> tasks = new ArrayList<>(sources.size());
+            for (int i = 0; i < sources.size(); i++) {
+                tasks.add(new MergeTask(sources.get(i), out, offsets[i]));
+            }
+            pool.invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    invokeAll(tasks);
+                }
+            });
+            for (MergeTask task : tasks) {
+                if (task.error != null) {
+                    throw task.error;
+                }
+            }
+        }
+        return new TransferStats(total, System.nanoTime() - start);
+    }
+
+    private static final class MergeTask extends RecursiveAction {
+        private final Path source;
+        private final FileChannel out;
+        private final long position;
+        private IOException error;
+
+        private MergeTask(Path source, FileChannel out, long position) {
+            this.source = source;
+            this.out = out;
+            this.position = position;
+        }
+
+        @Override
+        protected void compute() {
+            try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ)) {
+                transfer(in, out, position);
+            } catch (IOException e) {
+                error = e;
+            }
+        }
+    }
+
+    /**
+     * 用 transferTo（sendfile）将 in 的全部内容写到 out 的指定位置，会移动 out 的 position，只用于顺序写
+     * @return 传输的字节数
+     */
+    private static long transferTo(FileChannel in, FileChannel out, long position) throws IOException {
+        long size = in.size();
+        long done = 0;
+        out.position(position);
+        while (done < size) {
+            long count;
+            try {
+                count = in.transferTo(done, size - done, out);
+            } catch (IOException e) {
+                // 部分平台或文件系统不支持零拷贝
+                count = 0;
+            }
+            if (count <= 0) {
+                return done + copyWithBuffer(in, done, size, out, position + done);
+            }
+            done += count;
+        }
+        return done;
+    }
+
+    /**
+     * 用 transferFrom 将 in 的全部内容写到 out 的指定位置，不改变 out 的 position，可由多个线程对同一个 out 并发调用
+     * @return 传输的字节数
+     */
+    static long transfer(FileChannel in, FileChannel out, long position) throws IOException {
+        long size = in.size();
+        long done = 0;
+        while (done < size) {
+            long count;
+            try {
+                count = out.transferFrom(in.position(done), position + done, size - done);
+            } catch (IOException e) {
+                // 部分平台或文件系统不支持零拷贝
+                count = 0;
+            }
+            if (count <= 0) {
+                return done + copyWithBuffer(in, done, size, out, position + done);
+            }
+            done += count;
+        }
+        return done;
+    }
+
+    private static long copyWithBuffer(FileChannel in, long from, long to, FileChannel out, long position) throws IOException {
+        ByteBuffer buffer = BUFFER.get();
+        long done = 0;
+        while (from + done < to) {
+            buffer.clear();
+            int read = in.read(buffer, from + done);
+            if (read < 0) {
+                break;
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                done += out.write(buffer, position + done);
+            }
+        }
+        return done;
+    }
+
+    public static void main(String[] args) throws IOException {
+        List<Path> sources = new ArrayList<>();
+        byte[] chunk = new byte[32 * 1024 * 1024];
+        for (int i = 0; i < 4; i++) {
+            Arrays.fill(chunk, (byte) i);
+            Path source = Files.createTempFile("merge", ".part");
+            Files.write(source, chunk);
+            sources.add(source);
+        }
+        Path merged = Files.createTempFile("merge", ".all");
+        Path mergedParallel = Files.createTempFile("merge", ".parallel");
+        try {
+            System.out.println("merge:         " + merge(sources, merged));
+            System.out.println("mergeParallel: " + mergeParallel(sources, mergedParallel, ForkJoinPool.commonPool()));
+            System.out.println("content equal: " + FileComparator.contentEquals(merged, mergedParallel));
+            System.out.println("copy:          " + copy(merged, mergedParallel));
+        } finally {
+            for (Path source : sources) {
+                Files.deleteIfExists(source);
+            }
+            Files.deleteIfExists(merged);
+            Files.deleteIfExists(mergedParallel);
+        }
+    }
+}
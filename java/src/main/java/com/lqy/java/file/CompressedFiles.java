@@ -0,0 +1,255 @@
+package com.lqy.java.file;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * 压缩文件的流式读写
+ * streaming compressed file I/O
+ * <p>
+ * 写入时直接压缩、读取时直接解压，不再先写出原文再单独压缩一遍。{@link #compressParallel} 把输入切成独立的块，
+ * 在线程池中并行压缩后按顺序写出（与 pigz 相同，要求编解码器 {@link CompressionCodec#isConcatenable()}），
+ * 同时在途的块数有上限，内存占用与输入大小无关。
+ */
+public class CompressedFiles {
+
+    /**
+     * 并行压缩时每块的原文大小
+     */
+    public static final int BLOCK_SIZE = 1024 * 1024;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 打开压缩输出流，目标文件存在时覆盖
+     * @param target 目标文件
+     * @param codec  编解码器
+     * @return 写入原文的输出流
+     * @throws IOException
+     */
+    public static OutputStream newOutputStream(Path target, CompressionCodec codec) throws IOException {
+        return new BufferedOutputStream(codec.compress(Files.newOutputStream(target)), BUFFER_SIZE);
+    }
+
+    /**
+     * 打开解压输入流
+     * @param source 压缩文件
+     * @param codec  编解码器
+     * @return 读取原文的输入流
+     * @throws IOException
+     */
+    public static InputStream newInputStream(Path source, CompressionCodec codec) throws IOException {
+        return new BufferedInputStream(codec.decompress(Files.newInputStream(source)), BUFFER_SIZE);
+    }
+
+    public static BufferedWriter newBufferedWriter(Path target, CompressionCodec codec, Charset charset) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(codec.compress(Files.newOutputStream(target)), charset), BUFFER_SIZE);
+    }
+
+    public static BufferedReader newBufferedReader(Path source, CompressionCodec codec, Charset charset) throws IOException {
+        return new BufferedReader(new InputStreamReader(codec.decompress(Files.newInputStream(source)), charset), BUFFER_SIZE);
+    }
+
+    /**
+     * 单线程压缩文件
+     * @param source 源文件
+     * @param target 压缩后的文件
+     * @param codec  编解码器
+     * @return 传输统计（原文字节数）
+     * @throws IOException
+     */
+    public static ChannelCopier.TransferStats compress(Path source, Path target, CompressionCodec codec) throws IOException {
+        long start = System.nanoTime();
+        long bytes;
+        try (InputStream in = Files.newInputStream(source);
+             OutputStream out = codec.compress(Files.newOutputStream(target))) {
+            bytes = copy(in, out);
+        }
+        return new ChannelCopier.TransferStats(bytes, System.nanoTime() - start);
+    }
+
+    /**
+     * 解压文件
+     * @param source 压缩文件
+     * @param target 解压后的文件
+     * @param codec  编解码器
+     * @return 传输统计（原文字节数）
+     * @throws IOException
+     */
+    public static ChannelCopier.TransferStats decompress(Path source, Path target, CompressionCodec codec) throws IOException {
+        long start = System.nanoTime();
+        long bytes;
+        try (InputStream in = codec.decompress(Files.newInputStream(source));
+             OutputStream out = Files.newOutputStream(target)) {
+            bytes = copy(in, out);
+        }
+        return new ChannelCopier.TransferStats(bytes, System.nanoTime() - start);
+    }
+
+    /**
+     * 分块并行压缩文件
+     * @param source 源文件
+     * @param target 压缩后的文件
+     * @param codec  可拼接的编解码器，如 GZIP
+     * @param pool   线程池
+     * @return 传输统计（原文字节数）
+     * @throws IOException
+     */
+    public static ChannelCopier.TransferStats compressParallel(Path source, Path target, CompressionCodec codec,
+                                                               ForkJoinPool pool) throws IOException {
+        return compressParallel(Arrays.asList(source), target, codec, pool);
+    }
+
+    /**
+     * 按顺序合并多个源文件并分块并行压缩，相当于合并后再压缩，但只读写一遍磁盘
+     * merge sources and compress them in independent parallel blocks
+     * @param sources 源文件列表
+     * @param target  压缩后的文件，存在时覆盖
+     * @param codec   可拼接的编解码器，如 GZIP
+     * @param pool    线程池
+     * @return 传输统计（原文字节数）
+     * @throws IOException
+     */
+    public static ChannelCopier.TransferStats compressParallel(List<Path> sources, Path target, CompressionCodec codec,
+                                                               ForkJoinPool pool) throws IOException {
+        if (!codec.isConcatenable()) {
+            throw new IllegalArgumentException("Codec does not support concatenated blocks: " + codec.getClass().getName());
+        }
+        long start = System.nanoTime();
+        long bytes = 0;
+        int window = pool.getParallelism() * 2;
+        Deque<ForkJoinTask<byte[]>> pending = new ArrayDeque<>(window);
+        try (OutputStream out = Files.newOutputStream(target)) {
+            byte[] block = new byte[BLOCK_SIZE];
+            int filled = 0;
+            for (Path source : sources) {
+                try (InputStream in = Files.newInputStream(source)) {
+                    int read;
+                    while ((read = in.read(block, filled, block.length - filled)) != -1) {
+                        filled += read;
+                        bytes += read;
+                        if (filled == block.length) {
+                            submit(pool, pending, codec, block, filled);
+                            block = new byte[BLOCK_SIZE];
+                            filled = 0;
+                            if (pending.size() >= window) {
+                                out.write(await(pending.poll()));
+                            }
+                        }
+                    }
+                }
+            }
+            if (filled > 0 || bytes == 0) {
+                // 空输入也写出一个空块，保证结果是合法的压缩文件
+                submit(pool, pending, codec, block, filled);
+            }
+            while (!pending.isEmpty()) {
+                out.write(await(pending.poll()));
+            }
+        } finally {
+            for (ForkJoinTask<byte[]> task : pending) {
+                task.cancel(false);
+            }
+        }
+        return new ChannelCopier.TransferStats(bytes, System.nanoTime() - start);
+    }
+
+    private static void submit(ForkJoinPool pool, Deque<ForkJoinTask<byte[]>> pending, CompressionCodec codec,
+                               byte[] block, int length) {
+        pending.add(pool.submit(() -> compressBlock(codec, block, length)));
+    }
+
+    private static byte[] compressBlock(CompressionCodec codec, byte[] block, int length) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(length / 2 + 64);
+        try (OutputStream out = codec.compress(buffer)) {
+            out.write(block, 0, length);
+        }
+        return buffer.toByteArray();
+    }
+
+    private static byte[] await(ForkJoinTask<byte[]> task) throws IOException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while compressing");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Compression failed", cause);
+        }
+    }
+
+    private static long copy(InputStream in, OutputStream out) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long total = 0;
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+            total += read;
+        }
+        return total;
+    }
+
+    public static void main(String[] args) throws IOException {
+        List<Path> parts = new ArrayList<>();
+        for (int p = 0; p < 4; p++) {
+            Path part = Files.createTempFile("export", ".csv");
+            try (BufferedWriter writer = Files.newBufferedWriter(part, StandardCharsets.UTF_8)) {
+                for (int i = 0; i < 400_000; i++) {
+                    writer.write(p + "," + i + ",user" + (i % 997) + ",2024-01-01 00:00:" + (i % 60) + "," + (i * 31 % 10007) + "\n");
+                }
+            }
+            parts.add(part);
+        }
+        Path merged = Files.createTempFile("export", ".csv");
+        Path twoPass = Files.createTempFile("export", ".csv.gz");
+        Path parallel = Files.createTempFile("export", ".csv.gz");
+        Path restored = Files.createTempFile("export", ".csv");
+        try {
+            long start = System.nanoTime();
+            ChannelCopier.merge(parts, merged);
+            ChannelCopier.TransferStats stats = compress(merged, twoPass, CompressionCodec.GZIP);
+            System.out.printf("merge then gzip:  %d ms, %d -> %d bytes%n", (System.nanoTime() - start) / 1_000_000,
+                    stats.getBytes(), Files.size(twoPass));
+
+            stats = compressParallel(parts, parallel, CompressionCodec.GZIP, ForkJoinPool.commonPool());
+            System.out.printf("compressParallel: %d ms, %d -> %d bytes%n", stats.getNanos() / 1_000_000,
+                    stats.getBytes(), Files.size(parallel));
+
+            System.out.println("decompress:       " + decompress(parallel, restored, CompressionCodec.GZIP));
+            System.out.println("content equal:    " + FileComparator.contentEquals(merged, restored));
+        } finally {
+            for (Path part : parts) {
+                Files.deleteIfExists(part);
+            }
+            Files.deleteIfExists(merged);
+            Files.deleteIfExists(twoPass);
+            Files.deleteIfExists(parallel);
+            Files.deleteIfExists(restored);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.lqy.java.file;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * 压缩编解码器
+ * pluggable compression codec
+ * <p>
+ * 内置 {@link GzipCodec} 与 {@link DeflateCodec}，其他格式（如 LZ4、Zstd）可以实现该接口后交给 {@link CompressedFiles} 使用。
+ */
+public interface CompressionCodec {
+
+    /**
+     * 默认级别的 GZIP
+     */
+    CompressionCodec GZIP = new GzipCodec();
+
+    /**
+     * 默认级别的 zlib 格式 Deflate
+     */
+    CompressionCodec DEFLATE = new DeflateCodec();
+
+    /**
+     * 包装输出流，写入的数据被压缩后写到 out，关闭返回的流会关闭 out
+     * @param out 压缩数据的去向
+     * @return 压缩输出流
+     * @throws IOException
+     */
+    OutputStream compress(OutputStream out) throws IOException;
+
+    /**
+     * 包装输入流，从返回的流读取 in 解压后的数据，关闭返回的流会关闭 in
+     * @param in 压缩数据来源
+     * @return 解压输入流
+     * @throws IOException
+     */
+    InputStream decompress(InputStream in) throws IOException;
+
+    /**
+     * 文件扩展名，如 .gz
+     */
+    String getExtension();
+
+    /**
+     * 独立压缩的数据块首尾相接后是否仍是合法的压缩数据（解压结果为各块原文的拼接），
+     * 为 true 时 {@link CompressedFiles#compressParallel} 可以分块并行压缩
+     */
+    default boolean isConcatenable() {
+        return false;
+    }
+}
@@ -0,0 +1,379 @@
+package com.lqy.java.file;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * 并行目录遍历
+ * parallel directory walker
+ * <p>
+ * 每个子目录是一个 ForkJoin 任务，使用 Files.newDirectoryStream 列出目录项，每个目录项只读取一次 BasicFileAttributes。
+ * 结果可以通过回调（{@link #walk(BiConsumer)}，会被多个线程并发调用）或惰性 Stream（{@link #stream()}）获取。
+ * 支持按文件名 glob/正则或自定义条件过滤、深度限制、找到 N 个结果后提前结束；跟随符号链接时按 fileKey 检测并跳过循环。
+ * <p>
+ * 根目录无法读取时抛出异常，子目录无法读取（如权限不足）时跳过该目录。
+ * <pre>
+ * List&lt;Path&gt; logs = DirectoryWalker.of(Paths.get("/var/log")).glob("*.log").maxDepth(3).collect();
+ * </pre>
+ */
+public class DirectoryWalker {
+    private static final Object END = new Object();
+    private static final int QUEUE_CAPACITY = 4096;
+
+    private final Path root;
+    private int maxDepth = Integer.MAX_VALUE;
+    private long limit = Long.MAX_VALUE;
+    private boolean followLinks;
+    private boolean includeDirectories;
+    private BiPredicate<Path, BasicFileAttributes> filter = (path, attributes) -> true;
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    private DirectoryWalker(Path root) {
+        this.root = root;
+    }
+
+    public static DirectoryWalker of(Path root) {
+        return new DirectoryWalker(root);
+    }
+
+    /**
+     * 最大遍历深度，根目录下的直接子项深度为 1
+     */
+    public DirectoryWalker maxDepth(int maxDepth) {
+        if (maxDepth < 0) {
+            throw new IllegalArgumentException("maxDepth must not be negative: " + maxDepth);
+        }
+        this.maxDepth = maxDepth;
+        return this;
+    }
+
+    /**
+     * 最多返回的结果数，达到后停止遍历
+     */
+    public DirectoryWalker limit(long limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("limit must not be negative: " + limit);
+        }
+        this.limit = limit;
+        return this;
+    }
+
+    /**
+     * 是否跟随符号链接进入目录，默认不跟随
+     */
+    public DirectoryWalker followLinks(boolean followLinks) {
+        this.followLinks = followLinks;
+        return this;
+    }
+
+    /**
+     * 结果中是否包含目录，默认只返回非目录项
+     */
+    public DirectoryWalker includeDirectories(boolean includeDirectories) {
+        this.includeDirectories = includeDirectories;
+        return this;
+    }
+
+    /**
+     * 按文件名 glob 匹配，如 *.log
+     */
+    public DirectoryWalker glob(String glob) {
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+        return filter((path, attributes) -> matcher.matches(path.getFileName()));
+    }
+
+    /**
+     * 按文件名正则匹配（完整匹配）
+     */
+    public DirectoryWalker regex(String regex) {
+        Pattern pattern = Pattern.compile(regex);
+        return filter((path, attributes) -> pattern.matcher(path.getFileName().toString()).matches());
+    }
+
+    /**
+     * 自定义过滤条件，与已设置的条件同时满足才返回
+     */
+    public DirectoryWalker filter(BiPredicate<Path, BasicFileAttributes> filter) {
+        this.filter = this.filter.and(filter);
+        return this;
+    }
+
+    /**
+     * 执行遍历任务的线程池
+     */
+    public DirectoryWalker pool(ForkJoinPool pool) {
+        this.pool = pool;
+        return this;
+    }
+
+    /**
+     * 遍历并把每个匹配项交给 sink，sink 会被多个线程并发调用
+     * @param sink 结果回调
+     * @throws IOException 根目录无法读取
+     */
+    public void walk(BiConsumer<Path, BasicFileAttributes> sink) throws IOException {
+        Walk walk = new Walk(sink, new AtomicBoolean());
+        pool.invoke(walk.start());
+        walk.rethrow();
+    }
+
+    /**
+     * 遍历并把每个匹配项交给 sink，sink 会被多个线程并发调用
+     * @param sink 结果回调
+     * @throws IOException 根目录无法读取
+     */
+    public void walk(Consumer<Path> sink) throws IOException {
+        walk((path, attributes) -> sink.accept(path));
+    }
+
+    /**
+     * 遍历并收集所有匹配项，顺序不确定
+     * @return 匹配的路径
+     * @throws IOException 根目录无法读取
+     */
+    public List<Path> collect() throws IOException {
+        ConcurrentLinkedQueue<Path> result = new ConcurrentLinkedQueue<>();
+        walk(result::add);
+        return new ArrayList<>(result);
+    }
+
+    /**
+     * 惰性结果流：后台并行遍历，结果经有界队列交给消费者，消费跟不上时遍历线程会等待。
+     * 关闭流（或使用 try-with-resources）会停止后台遍历。
+     * @return 匹配路径的流，顺序不确定
+     * @throws IOException 根目录无法读取
+     */
+    public Stream<Path> stream() throws IOException {
+        BlockingQueue<Object> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        AtomicBoolean closed = new AtomicBoolean();
+        Walk walk = new Walk((path, attributes) -> offer(queue, path, closed), closed);
+        DirectoryTask task = walk.start();
+        pool.execute(() -> {
+            try {
+                task.invoke();
+                if (walk.error != null) {
+                    offer(queue, walk.error, closed);
+                }
+            } finally {
+                offer(queue, END, closed);
+            }
+        });
+        Iterator<Path> iterator = new Iterator<Path>() {
+            private Object next;
+
+            @Override
+            public boolean hasNext() {
+                if (next == null) {
+                    try {
+                        next = queue.take();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        closed.set(true);
+                        next = END;
+                    }
+                }
+                if (next instanceof IOException) {
+                    IOException error = (IOException) next;
+                    next = END;
+                    throw new UncheckedIOException(error);
+                }
+                return next != END;
+            }
+
+            @Override
+            public Path next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Path path = (Path) next;
+                next = null;
+                return path;
+            }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.NONNULL), false)
+                .onClose(() -> closed.set(true));
+    }
+
+    private static void offer(BlockingQueue<Object> queue, Object item, AtomicBoolean closed) {
+        try {
+            while (!closed.get() && !queue.offer(item, 100, TimeUnit.MILLISECONDS)) {
+                // 消费者暂时跟不上，继续等待直到流被关闭
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            closed.set(true);
+        }
+    }
+
+    /**
+     * 一次遍历的共享状态
+     */
+    private final class Walk {
+        private final BiConsumer<Path, BasicFileAttributes> sink;
+        private final AtomicBoolean closed;
+        private final AtomicLong found = new AtomicLong();
+        private final Set<Object> visited = ConcurrentHashMap.newKeySet();
+        private final LinkOption[] linkOptions = followLinks ? new LinkOption[0] : new LinkOption[]{LinkOption.NOFOLLOW_LINKS};
+        private volatile IOException error;
+
+        private Walk(BiConsumer<Path, BasicFileAttributes> sink, AtomicBoolean closed) {
+            this.sink = sink;
+            this.closed = closed;
+        }
+
+        /**
+         * 校验根目录并创建根任务
+         */
+        private DirectoryTask start() throws IOException {
+            BasicFileAttributes attributes = Files.readAttributes(root, BasicFileAttributes.class, linkOptions);
+            if (!attributes.isDirectory()) {
+                throw new IOException("Not a directory: " + root);
+            }
+            markVisited(root, attributes);
+            return new DirectoryTask(this, root, 0);
+        }
+
+        private boolean isStopped() {
+            return closed.get() || found.get() >= limit;
+        }
+
+        private void emit(Path path, BasicFileAttributes attributes) {
+            if (!filter.test(path, attributes)) {
+                return;
+            }
+            if (found.incrementAndGet() <= limit) {
+                sink.accept(path, attributes);
+            }
+        }
+
+        /**
+         * 跟随链接时记录已进入的目录，返回 false 表示出现循环
+         */
+        private boolean markVisited(Path dir, BasicFileAttributes attributes) {
+            if (!followLinks) {
+                return true;
+            }
+            Object key = attributes.fileKey();
+            if (key == null) {
+                try {
+                    key = dir.toRealPath();
+                } catch (IOException e) {
+                    return false;
+                }
+            }
+            return visited.add(key);
+        }
+
+        private void rethrow() throws IOException {
+            if (error != null) {
+                throw error;
+            }
+        }
+    }
+
+    private final class DirectoryTask extends RecursiveAction {
+        private final Walk walk;
+        private final Path dir;
+        private final int depth;
+
+        private DirectoryTask(Walk walk, Path dir, int depth) {
+            this.walk = walk;
+            this.dir = dir;
+            this.depth = depth;
+        }
+
+        @Override
+        protected void compute() {
+            if (depth >= maxDepth || walk.isStopped()) {
+                return;
+            }
+            List<DirectoryTask> children = new ArrayList<>();
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+                for (Path entry : entries) {
+                    if (walk.isStopped()) {
+                        break;
+                    }
+                    BasicFileAttributes attributes;
+                    try {
+                        attributes = Files.readAttributes(entry, BasicFileAttributes.class, walk.linkOptions);
+                    } catch (IOException e) {
+                        // 跟随链接时目标不存在等情况，退回读取链接本身
+                        try {
+                            attributes = Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+                        } catch (IOException removed) {
+                            // 遍历期间被删除等情况，跳过这一项
+                            continue;
+                        }
+                    }
+                    if (attributes.isDirectory()) {
+                        if (includeDirectories) {
+                            walk.emit(entry, attributes);
+                        }
+                        if (depth + 1 < maxDepth && walk.markVisited(entry, attributes)) {
+                            DirectoryTask child = new DirectoryTask(walk, entry, depth + 1);
+                            child.fork();
+                            children.add(child);
+                        }
+                    } else {
+                        walk.emit(entry, attributes);
+                    }
+                }
+            } catch (IOException | DirectoryIteratorException e) {
+                if (depth == 0) {
+                    walk.error = e instanceof DirectoryIteratorException
+                            ? ((DirectoryIteratorException) e).getCause() : (IOException) e;
+                }
+                // 子目录无法读取时跳过
+            }
+            for (DirectoryTask child : children) {
+                child.join();
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path root = Paths.get(args.length > 0 ? args[0] : System.getProperty("java.home"));
+
+        long start = System.nanoTime();
+        List<Path> all = of(root).collect();
+        System.out.printf("collect: %d files in %d ms%n", all.size(), (System.nanoTime() - start) / 1_000_000);
+
+        try (Stream<Path> jars = of(root).glob("*.jar").stream()) {
+            jars.limit(3).forEach(System.out::println);
+        }
+
+        System.out.println("limit(5): " + of(root).regex(".*\\.so|.*\\.dll").limit(5).collect().size());
+        System.out.println("maxDepth(1): " + of(root).maxDepth(1).includeDirectories(true).collect());
+    }
+}
@@ -0,0 +1,442 @@
+package com.lqy.java.file;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 目录增量变更监听
+ * incremental change feed for a directory tree
+ * <p>
+ * 基于 WatchService 递归注册所有子目录（新建的子目录会自动注册），开销与变更数量成正比而不是与目录树大小成正比。
+ * 事件先在内存中合并（如创建后又删除的文件不会出现），在 debounce 时间内没有新事件时一次交给监听器；
+ * 持续有事件时最长等待 10 倍 debounce 时间。
+ * <p>
+ * 无法使用 WatchService（如部分网络文件系统，或调用 {@link #polling(boolean)} 强制）时退化为快照比较：
+ * 定期用 {@link DirectoryWalker} 扫描，与缓存的大小、修改时间比较得出变更。WatchService 事件溢出时也会做一次快照比较重新同步。
+ * <p>
+ * 只报告非目录项的变更；删除目录时报告其中每个已知文件的删除。监听器在后台线程中被调用。
+ * <pre>
+ * try (DirectoryWatcher watcher = DirectoryWatcher.of(Paths.get("/data/inbox")).start(changes -&gt; ...)) {
+ *     ...
+ * }
+ * </pre>
+ */
+public class DirectoryWatcher implements Closeable {
+
+    /**
+     * 变更类型
+     */
+    public enum Kind {
+        CREATED,
+        MODIFIED,
+        DELETED
+    }
+
+    /**
+     * 一个文件的变更
+     * a single change
+     */
+    public static final class Change {
+        private final Kind kind;
+        private final Path path;
+
+        Change(Kind kind, Path path) {
+            this.kind = kind;
+            this.path = path;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        public Path getPath() {
+            return path;
+        }
+
+        @Override
+        public String toString() {
+            return kind + " " + path;
+        }
+    }
+
+    /**
+     * 快照中记录的文件状态
+     */
+    private static final class FileState {
+        private final long size;
+        private final long lastModified;
+
+        private FileState(BasicFileAttributes attributes) {
+            this.size = attributes.size();
+            this.lastModified = attributes.lastModifiedTime().toMillis();
+        }
+
+        private boolean sameAs(FileState other) {
+            return size == other.size && lastModified == other.lastModified;
+        }
+    }
+
+    private final Path root;
+    private long debounceMillis = 200;
+    private long pollIntervalMillis = 5000;
+    private boolean polling;
+
+    private Consumer<List<Change>> listener;
+    private WatchService watchService;
+    private final Map<WatchKey, Path> watchKeys = new ConcurrentHashMap<>();
+    private final Set<Path> watchedDirectories = ConcurrentHashMap.newKeySet();
+    /**
+     * 已知文件的状态，按路径排序以便找出某个目录下的所有文件；只由后台线程访问
+     */
+    private NavigableMap<Path, FileState> snapshot = new TreeMap<>();
+    private final Map<Path, Kind> pending = new LinkedHashMap<>();
+    private Thread thread;
+    private volatile boolean closed;
+
+    private DirectoryWatcher(Path root) {
+        this.root = root.toAbsolutePath().normalize();
+    }
+
+    public static DirectoryWatcher of(Path root) {
+        return new DirectoryWatcher(root);
+    }
+
+    /**
+     * 合并事件的静默时间，默认 200 毫秒
+     */
+    public DirectoryWatcher debounce(long time, TimeUnit unit) {
+        this.debounceMillis = Math.max(1, unit.toMillis(time));
+        return this;
+    }
+
+    /**
+     * 快照比较模式的扫描间隔，默认 5 秒
+     */
+    public DirectoryWatcher pollInterval(long time, TimeUnit unit) {
+        this.pollIntervalMillis = Math.max(1, unit.toMillis(time));
+        return this;
+    }
+
+    /**
+     * 是否强制使用快照比较而不是 WatchService
+     */
+    public DirectoryWatcher polling(boolean polling) {
+        this.polling = polling;
+        return this;
+    }
+
+    /**
+     * 记录当前状态（已有文件不产生事件）并开始监听
+     * @param listener 变更回调，每次传入一批合并后的变更，在后台线程中调用
+     * @return this，关闭即停止监听
+     * @throws IOException 根目录无法读取
+     */
+    public DirectoryWatcher start(Consumer<List<Change>> listener) throws IOException {
+        if (thread != null) {
+            throw new IllegalStateException("Watcher already started");
+        }
+        this.listener = listener;
+        if (!polling) {
+            try {
+                watchService = root.getFileSystem().newWatchService();
+                register(root);
+            } catch (IOException | UnsupportedOperationException e) {
+                // 当前文件系统不支持 WatchService
+                closeWatchService();
+                polling = true;
+            }
+        }
+        snapshot = new TreeMap<>(scan(root, !polling));
+        thread = new Thread(polling ? this::runPolling : this::runWatching, "directory-watcher-" + root.getFileName());
+        thread.setDaemon(true);
+        thread.start();
+        return this;
+    }
+
+    /**
+     * 是否处于快照比较模式
+     */
+    public boolean isPolling() {
+        return polling;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        closeWatchService();
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void closeWatchService() throws IOException {
+        if (watchService != null) {
+            watchService.close();
+        }
+    }
+
+    private void runWatching() {
+        long firstEvent = 0;
+        long lastEvent = 0;
+        try {
+            while (!closed) {
+                long timeout = pending.isEmpty() ? Long.MAX_VALUE
+                        : Math.max(1, Math.min(lastEvent + debounceMillis, firstEvent + debounceMillis * 10) - now());
+                WatchKey key = timeout == Long.MAX_VALUE ? watchService.take() : watchService.poll(timeout, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    if (pending.isEmpty()) {
+                        firstEvent = now();
+                    }
+                    lastEvent = now();
+                    handle(key);
+                }
+                if (!pending.isEmpty() && (now() - lastEvent >= debounceMillis || now() - firstEvent >= debounceMillis * 10)) {
+                    deliver();
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // 已关闭
+        }
+    }
+
+    private void runPolling() {
+        while (!closed) {
+            try {
+                Thread.sleep(pollIntervalMillis);
+            } catch (InterruptedException e) {
+                return;
+            }
+            resync();
+            deliver();
+        }
+    }
+
+    private void handle(WatchKey key) {
+        Path dir = watchKeys.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || dir == null) {
+                resync();
+                continue;
+            }
+            Path path = dir.resolve((Path) event.context());
+            if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                removed(path);
+            } else {
+                createdOrModified(path);
+            }
+        }
+        if (!key.reset()) {
+            // 目录已被删除或不可访问
+            watchKeys.remove(key);
+            if (dir != null) {
+                watchedDirectories.remove(dir);
+            }
+        }
+    }
+
+    private void createdOrModified(Path path) {
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (IOException e) {
+            // 已经被删除，随后会收到删除事件
+            return;
+        }
+        if (attributes.isDirectory()) {
+            // 新目录：注册并补报注册前已经写入的文件
+            try {
+                for (Map.Entry<Path, FileState> file : scan(path, !polling).entrySet()) {
+                    update(file.getKey(), file.getValue());
+                }
+            } catch (IOException e) {
+                // 目录已被删除
+            }
+        } else {
+            update(path, new FileState(attributes));
+        }
+    }
+
+    private void update(Path path, FileState state) {
+        FileState previous = snapshot.put(path, state);
+        if (previous == null) {
+            record(path, Kind.CREATED);
+        } else if (!previous.sameAs(state)) {
+            record(path, Kind.MODIFIED);
+        }
+    }
+
+    /**
+     * 删除事件：可能是文件，也可能是目录，目录时删除快照中其下的所有文件
+     */
+    private void removed(Path path) {
+        if (snapshot.remove(path) != null) {
+            record(path, Kind.DELETED);
+        }
+        String prefix = path.toString();
+        Iterator<Map.Entry<Path, FileState>> iterator = snapshot.tailMap(path, false).entrySet().iterator();
+        while (iterator.hasNext()) {
+            Path next = iterator.next().getKey();
+            if (!next.toString().startsWith(prefix)) {
+                break;
+            }
+            if (next.startsWith(path)) {
+                iterator.remove();
+                record(next, Kind.DELETED);
+            }
+        }
+    }
+
+    /**
+     * 完整扫描并与快照比较，同时注册尚未注册的目录
+     */
+    private void resync() {
+        Map<Path, FileState> current;
+        try {
+            current = scan(root, !polling);
+        } catch (IOException e) {
+            // 根目录不可访问，视为其下所有文件被删除
+            current = new TreeMap<>();
+        }
+        for (Path path : snapshot.keySet()) {
+            if (!current.containsKey(path)) {
+                record(path, Kind.DELETED);
+            }
+        }
+        NavigableMap<Path, FileState> previous = snapshot;
+        snapshot = new TreeMap<>(current);
+        for (Map.Entry<Path, FileState> file : current.entrySet()) {
+            FileState state = previous.get(file.getKey());
+            if (state == null) {
+                record(file.getKey(), Kind.CREATED);
+            } else if (!state.sameAs(file.getValue())) {
+                record(file.getKey(), Kind.MODIFIED);
+            }
+        }
+    }
+
+    /**
+     * 并行扫描 dir 下的所有文件，register 为 true 时注册遇到的每个目录
+     */
+    private Map<Path, FileState> scan(Path dir, boolean register) throws IOException {
+        if (register) {
+            register(dir);
+        }
+        Map<Path, FileState> files = new ConcurrentHashMap<>();
+        DirectoryWalker.of(dir).includeDirectories(register).walk((path, attributes) -> {
+            if (!attributes.isDirectory()) {
+                files.put(path, new FileState(attributes));
+            } else if (!closed) {
+                try {
+                    register(path);
+                } catch (IOException e) {
+                    // 目录在注册前被删除或无权限，跳过
+                }
+            }
+        });
+        return files;
+    }
+
+    private void register(Path dir) throws IOException {
+        if (watchedDirectories.add(dir)) {
+            try {
+                WatchKey key = dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+                watchKeys.put(key, dir);
+            } catch (IOException | RuntimeException e) {
+                watchedDirectories.remove(dir);
+                if (e instanceof NoSuchFileException || e instanceof ClosedWatchServiceException) {
+                    return;
+                }
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * 合并同一路径上的事件
+     */
+    private void record(Path path, Kind kind) {
+        pending.merge(path, kind, DirectoryWatcher::merge);
+    }
+
+    private static Kind merge(Kind previous, Kind next) {
+        if (previous == Kind.CREATED) {
+            // 创建后又删除的文件对监听者不可见
+            return next == Kind.DELETED ? null : Kind.CREATED;
+        }
+        if (previous == Kind.DELETED) {
+            return next == Kind.DELETED ? Kind.DELETED : Kind.MODIFIED;
+        }
+        return next == Kind.DELETED ? Kind.DELETED : Kind.MODIFIED;
+    }
+
+    private void deliver() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<Change> changes = new ArrayList<>(pending.size());
+        for (Map.Entry<Path, Kind> entry : pending.entrySet()) {
+            changes.add(new Change(entry.getValue(), entry.getKey()));
+        }
+        pending.clear();
+        try {
+            listener.accept(changes);
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private static long now() {
+        return System.nanoTime() / 1_000_000;
+    }
+
+    public static void main(String[] args) throws Exception {
+        for (boolean polling : new boolean[]{false, true}) {
+            Path dir = Files.createTempDirectory("watch");
+            try (DirectoryWatcher watcher = of(dir).polling(polling).pollInterval(300, TimeUnit.MILLISECONDS)
+                    .start(changes -> System.out.println("  " + changes))) {
+                System.out.println(watcher.isPolling() ? "snapshot diff:" : "WatchService:");
+                Files.write(dir.resolve("a.txt"), "a".getBytes());
+                Path sub = Files.createDirectories(dir.resolve("sub/deeper"));
+                Files.write(sub.resolve("b.txt"), "b".getBytes());
+                Files.write(dir.resolve("temp.txt"), "t".getBytes());
+                Files.delete(dir.resolve("temp.txt"));
+                Thread.sleep(1000);
+                Files.write(dir.resolve("a.txt"), "changed".getBytes());
+                Files.delete(sub.resolve("b.txt"));
+                Thread.sleep(1000);
+            } finally {
+                DirectoryWalker.of(dir).includeDirectories(true).collect().stream()
+                        .sorted((p1, p2) -> p2.getNameCount() - p1.getNameCount())
+                        .forEach(path -> path.toFile().delete());
+                Files.deleteIfExists(dir);
+            }
+        }
+    }
+}
@@ -0,0 +1,419 @@
+package com.lqy.java.file;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 长期打开的高吞吐追加写入器（组提交）
+ * long-lived, high-throughput appender with group commit
+ * <p>
+ * 与 FileUtil.appendToFile 每次调用都打开、关闭文件不同，FileAppender 一直持有 FileChannel。
+ * 多个线程通过无锁环形缓冲区并发追加记录，由单独的写线程批量写出：累计字节数达到批大小、距上次写出超过最大延迟、
+ * 或有线程调用 {@link #flush()} 时写出一批，并按 {@link FsyncPolicy} 决定何时 force 到磁盘。
+ * 环形缓冲区满时追加线程会等待（背压）。
+ * <pre>
+ * try (FileAppender appender = new FileAppender(Paths.get("audit.log"))) {
+ *     appender.append("user login");
+ * }
+ * </pre>
+ */
+public class FileAppender implements Closeable {
+
+    /**
+     * 刷盘策略
+     */
+    public enum FsyncPolicy {
+        /**
+         * 只写入操作系统缓存，不主动 force
+         */
+        NONE,
+        /**
+         * 每批写出后 force 一次
+         */
+        PER_BATCH,
+        /**
+         * 每条记录写出后 force 一次
+         */
+        PER_WRITE
+    }
+
+    private static final int DEFAULT_CAPACITY = 64 * 1024;
+    private static final int DEFAULT_BATCH_BYTES = 256 * 1024;
+    private static final long DEFAULT_MAX_DELAY_MILLIS = 5;
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    private final FileChannel channel;
+    private final Charset charset;
+    private final FsyncPolicy fsyncPolicy;
+    private final int maxBatchBytes;
+    private final long maxDelayNanos;
+
+    private final AtomicReferenceArray<byte[]> slots;
+    private final int mask;
+    /**
+     * 已被追加线程占用的下一个序号
+     */
+    private final AtomicLong tail = new AtomicLong();
+    /**
+     * 写线程下一个要消费的序号，只由写线程修改
+     */
+    private volatile long head;
+    private final AtomicLong pendingBytes = new AtomicLong();
+
+    private final Thread writer;
+    private final Object flushLock = new Object();
+    private volatile long flushedSequence;
+    private volatile boolean flushRequested;
+    private volatile boolean closed;
+    /**
+     * 写线程不再读取新的序号；之后占用序号的记录需要等写线程退出后确认是否已写出
+     */
+    private volatile boolean stopped;
+    private volatile IOException failure;
+    private final CountDownLatch terminated = new CountDownLatch(1);
+
+    private final AtomicLong flushCount = new AtomicLong();
+    private final AtomicLong totalFlushNanos = new AtomicLong();
+    private volatile long maxFlushNanos;
+    private final AtomicLong bytesWritten = new AtomicLong();
+
+    public FileAppender(Path path) throws IOException {
+        this(path, StandardCharsets.UTF_8, DEFAULT_CAPACITY, DEFAULT_BATCH_BYTES, DEFAULT_MAX_DELAY_MILLIS, FsyncPolicy.NONE);
+    }
+
+    public FileAppender(Path path, FsyncPolicy fsyncPolicy) throws IOException {
+        this(path, StandardCharsets.UTF_8, DEFAULT_CAPACITY, DEFAULT_BATCH_BYTES, DEFAULT_MAX_DELAY_MILLIS, fsyncPolicy);
+    }
+
+    /**
+     * @param path            目标文件，不存在时创建
+     * @param charset         字符串记录的编码
+     * @param capacity        环形缓冲区容量（记录数），必须是 2 的幂
+     * @param maxBatchBytes   每批最多写出的字节数，待写出字节数达到该值时立即写出
+     * @param maxDelayMillis  记录最长等待多久被写出
+     * @param fsyncPolicy     刷盘策略
+     * @throws IOException
+     */
+    public FileAppender(Path path, Charset charset, int capacity, int maxBatchBytes, long maxDelayMillis,
+                        FsyncPolicy fsyncPolicy) throws IOException {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two: " + capacity);
+        }
+        if (maxBatchBytes <= 0) {
+            throw new IllegalArgumentException("maxBatchBytes must be positive: " + maxBatchBytes);
+        }
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.charset = charset;
+        this.fsyncPolicy = fsyncPolicy;
+        this.maxBatchBytes = maxBatchBytes;
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, maxDelayMillis));
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+        this.writer = new Thread(this::runWriter, "file-appender-" + path.getFileName());
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * 追加一行（自动加换行符）
+     * append a line
+     * @param line 内容
+     * @throws IOException 写线程已失败或已关闭
+     */
+    public void append(String line) throws IOException {
+        append((line + LINE_SEPARATOR).getBytes(charset));
+    }
+
+    /**
+     * 原样追加一段字节，调用后不要再修改该数组
+     * append raw bytes
+     * @param record 内容
+     * @throws IOException 写线程已失败或已关闭
+     */
+    public void append(byte[] record) throws IOException {
+        long sequence;
+        while (true) {
+            checkOpen();
+            sequence = tail.get();
+            if (sequence - head >= slots.length()) {
+                // 环形缓冲区已满，唤醒写线程并等待
+                LockSupport.unpark(writer);
+                LockSupport.parkNanos(10_000);
+                continue;
+            }
+            if (tail.compareAndSet(sequence, sequence + 1)) {
+                break;
+            }
+        }
+        slots.set((int) sequence & mask, record);
+        if (pendingBytes.addAndGet(record.length) >= maxBatchBytes) {
+            LockSupport.unpark(writer);
+        }
+        if (stopped) {
+            // 与 close 并发：等写线程退出后确认这条记录是否在最后一次写出中
+            try {
+                terminated.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for appender to close");
+            }
+            if (head <= sequence) {
+                throw new IOException("Appender is closed");
+            }
+        }
+    }
+
+    /**
+     * 等待调用前追加的所有记录写出（并按刷盘策略 force）
+     * wait until everything appended so far has been written
+     * @throws IOException
+     */
+    public void flush() throws IOException {
+        long target = tail.get();
+        synchronized (flushLock) {
+            while (flushedSequence < target) {
+                checkFailure();
+                if (terminated.getCount() == 0) {
+                    throw new IOException("Appender is closed");
+                }
+                flushRequested = true;
+                LockSupport.unpark(writer);
+                try {
+                    flushLock.wait(TimeUnit.NANOSECONDS.toMillis(maxDelayNanos) + 1);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for flush");
+                }
+            }
+        }
+        checkFailure();
+    }
+
+    /**
+     * 写出所有已追加的记录后关闭文件
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            LockSupport.unpark(writer);
+            try {
+                terminated.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while closing appender");
+            } finally {
+                channel.close();
+            }
+        }
+        checkFailure();
+    }
+
+    /**
+     * 当前排队等待写出的记录数
+     */
+    public long getQueueDepth() {
+        return tail.get() - head;
+    }
+
+    /**
+     * 已写出的批次数
+     */
+    public long getFlushCount() {
+        return flushCount.get();
+    }
+
+    /**
+     * 平均每批写出（含 force）耗时，纳秒
+     */
+    public long getAverageFlushLatencyNanos() {
+        long count = flushCount.get();
+        return count == 0 ? 0 : totalFlushNanos.get() / count;
+    }
+
+    /**
+     * 最长一批写出（含 force）耗时，纳秒
+     */
+    public long getMaxFlushLatencyNanos() {
+        return maxFlushNanos;
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("FileAppender{queueDepth=%d, flushes=%d, avgFlush=%.1fus, maxFlush=%.1fus, bytes=%d}",
+                getQueueDepth(), getFlushCount(), getAverageFlushLatencyNanos() / 1e3, getMaxFlushLatencyNanos() / 1e3,
+                getBytesWritten());
+    }
+
+    private void checkOpen() throws IOException {
+        checkFailure();
+        if (closed) {
+            throw new IOException("Appender is closed");
+        }
+    }
+
+    private void checkFailure() throws IOException {
+        IOException error = failure;
+        if (error != null) {
+            throw new IOException("Appender failed", error);
+        }
+    }
+
+    private void runWriter() {
+        ByteBuffer batch = ByteBuffer.allocateDirect(maxBatchBytes);
+        try {
+            while (true) {
+                boolean finishing = closed;
+                if (!finishing && !flushRequested && pendingBytes.get() < maxBatchBytes) {
+                    LockSupport.parkNanos(this, maxDelayNanos);
+                }
+                drain(batch);
+                if (finishing && head == tail.get()) {
+                    stopped = true;
+                    // 在 stopped 之前占用序号的追加线程看不到 stopped，最后再写出一次
+                    drain(batch);
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            failure = e;
+        } finally {
+            stopped = true;
+            synchronized (flushLock) {
+                flushLock.notifyAll();
+            }
+            terminated.countDown();
+        }
+    }
+
+    /**
+     * 写出当前已发布的全部记录
+     */
+    private void drain(ByteBuffer batch) throws IOException {
+        long end = tail.get();
+        long sequence = head;
+        while (sequence < end) {
+            int index = (int) sequence & mask;
+            byte[] record = slots.get(index);
+            if (record == null) {
+                // 序号已被占用但内容尚未写入槽位，稍等
+                Thread.yield();
+                continue;
+            }
+            if (record.length > batch.remaining()) {
+                writeBatch(batch);
+            }
+            if (record.length > batch.capacity()) {
+                writeFully(ByteBuffer.wrap(record));
+                recordFlush(System.nanoTime(), record.length);
+            } else {
+                batch.put(record);
+            }
+            slots.set(index, null);
+            head = ++sequence;
+            pendingBytes.addAndGet(-record.length);
+            if (fsyncPolicy == FsyncPolicy.PER_WRITE) {
+                writeBatch(batch);
+            }
+        }
+        writeBatch(batch);
+        if (flushedSequence != sequence) {
+            synchronized (flushLock) {
+                flushedSequence = sequence;
+                flushRequested = false;
+                flushLock.notifyAll();
+            }
+        }
+    }
+
+    private void writeBatch(ByteBuffer batch) throws IOException {
+        if (batch.position() == 0) {
+            return;
+        }
+        long start = System.nanoTime();
+        batch.flip();
+        int length = batch.remaining();
+        writeFully(batch);
+        batch.clear();
+        recordFlush(start, length);
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        if (fsyncPolicy != FsyncPolicy.NONE) {
+            channel.force(false);
+        }
+    }
+
+    private void recordFlush(long start, int length) {
+        long elapsed = System.nanoTime() - start;
+        flushCount.incrementAndGet();
+        totalFlushNanos.addAndGet(elapsed);
+        if (elapsed > maxFlushNanos) {
+            // 只有写线程更新
+            maxFlushNanos = elapsed;
+        }
+        bytesWritten.addAndGet(length);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Path file = Files.createTempFile("audit", ".log");
+        int threads = 8;
+        int linesPerThread = 100_000;
+        try {
+            long start = System.nanoTime();
+            try (FileAppender appender = new FileAppender(file, FsyncPolicy.PER_BATCH)) {
+                Thread[] workers = new Thread[threads];
+                for (int t = 0; t < threads; t++) {
+                    int id = t;
+                    workers[t] = new Thread(() -> {
+                        try {
+                            for (int i = 0; i < linesPerThread; i++) {
+                                appender.append("thread-" + id + " event " + i);
+                            }
+                        } catch (IOException e) {
+                            e.printStackTrace();
+                        }
+                    });
+                    workers[t].start();
+                }
+                for (Thread worker : workers) {
+                    worker.join();
+                }
+                appender.flush();
+                System.out.println(appender);
+            }
+            System.out.printf("FileAppender: %d lines in %d ms%n", threads * linesPerThread, (System.nanoTime() - start) / 1_000_000);
+
+            Path slow = Files.createTempFile("audit", ".slow");
+            start = System.nanoTime();
+            for (int i = 0; i < 10_000; i++) {
+                FileUtil.appendToFile(slow.toString(), "event " + i);
+            }
+            System.out.printf("FileUtil.appendToFile: 10000 lines in %d ms%n", (System.nanoTime() - start) / 1_000_000);
+            Files.deleteIfExists(slow);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package com.lqy.java.file;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 文件内容比较
+ * file content comparison
+ * <p>
+ * 使用 FileChannel.map 将两个文件按区域映射到内存，以 8 字节为单位比较；大文件的各区域在 ForkJoinPool 中并行比较，
+ * 找到第一个不同之处后其余区域提前结束。另外提供基于摘要的一对多比较。
+ */
+public class FileComparator {
+
+    /**
+     * 每个映射/并行区域的大小
+     */
+    private static final long REGION_SIZE = 64L * 1024 * 1024;
+
+    /**
+     * 小于该大小的文件直接读入堆缓冲区比较，映射的开销不划算
+     */
+    private static final long MAP_THRESHOLD = 1024 * 1024;
+
+    /**
+     * 区域内每比较这么多字节检查一次是否已在更靠前的位置发现不同
+     */
+    private static final int CANCEL_CHECK_INTERVAL = 1024 * 1024;
+
+    private static final long EQUAL = -1;
+
+    /**
+     * 判断两个文件内容是否相同
+     * check whether two files have the same content
+     * @param path1 文件1
+     * @param path2 文件2
+     * @return 是否相同
+     * @throws IOException
+     */
+    public static boolean contentEquals(Path path1, Path path2) throws IOException {
+        if (Files.size(path1) != Files.size(path2)) {
+            return false;
+        }
+        return mismatch(path1, path2) == EQUAL;
+    }
+
+    /**
+     * 查找两个文件第一个不同字节的位置
+     * find the offset of the first differing byte
+     * @param path1 文件1
+     * @param path2 文件2
+     * @return 第一个不同字节的偏移量；内容完全相同返回 -1；一个文件是另一个的前缀时返回较短文件的长度
+     * @throws IOException
+     */
+    public static long mismatch(Path path1, Path path2) throws IOException {
+        return mismatch(path1, path2, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * 查找两个文件第一个不同字节的位置，使用指定线程池并行比较
+     * @param path1 文件1
+     * @param path2 文件2
+     * @param pool  线程池
+     * @return 第一个不同字节的偏移量，相同返回 -1
+     * @throws IOException
+     */
+    public static long mismatch(Path path1, Path path2, ForkJoinPool pool) throws IOException {
+        try (FileChannel channel1 = FileChannel.open(path1, StandardOpenOption.READ);
+             FileChannel channel2 = FileChannel.open(path2, StandardOpenOption.READ)) {
+            long size1 = channel1.size();
+            long size2 = channel2.size();
+            long length = Math.min(size1, size2);
+            long result;
+            if (length < MAP_THRESHOLD) {
+                result = compareSmall(channel1, channel2, (int) length);
+            } else {
+                result = compareMapped(channel1, channel2, length, pool);
+            }
+            if (result == EQUAL && size1 != size2) {
+                return length;
+            }
+            return result;
+        }
+    }
+
+    /**
+     * 一对多比较：先按大小过滤，再比较 SHA-256 摘要，参考文件只读取一次
+     * find candidates whose content equals the reference file
+     * @param reference  参考文件
+     * @param candidates 候选文件
+     * @return 与参考文件内容相同的候选文件
+     * @throws IOException
+     */
+    public static List<Path> findIdentical(Path reference, Collection<Path> candidates) throws IOException {
+        long size = Files.size(reference);
+        byte[] expected = null;
+        List<Path> result = new ArrayList<>();
+        for (Path candidate : candidates) {
+            if (Files.size(candidate) != size) {
+                continue;
+            }
+            if (expected == null) {
+                expected = FileDigest.sha256(reference);
+            }
+            if (MessageDigest.isEqual(expected, FileDigest.sha256(candidate))) {
+                result.add(candidate);
+            }
+        }
+        return result;
+    }
+
+    private static long compareSmall(FileChannel channel1, FileChannel channel2, int length) throws IOException {
+        ByteBuffer buffer1 = readFully(channel1, length);
+        ByteBuffer buffer2 = readFully(channel2, length);
+        return compare(buffer1, buffer2, 0, null);
+    }
+
+    private static ByteBuffer readFully(FileChannel channel, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) != -1) {
+            // 继续读取，直到读满或到达文件末尾
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static long compareMapped(FileChannel channel1, FileChannel channel2, long length, ForkJoinPool pool)
+            throws IOException {
+        int regions = (int) ((length + REGION_SIZE - 1) / REGION_SIZE);
+        AtomicLong firstMismatch = new AtomicLong(Long.MAX_VALUE);
+        RegionTask[] tasks = new RegionTask[regions];
+        for (int i = 0; i < regions; i++) {
+            long start = i * REGION_SIZE;
+            tasks[i] = new RegionTask(channel1, channel2, start, Math.min(REGION_SIZE, length - start), firstMismatch);
+        }
+        if (regions == 1) {
+            tasks[0].compute();
+        } else {
+            pool.invoke(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    invokeAll(tasks);
+                }
+            });
+        }
+        for (RegionTask task : tasks) {
+            if (task.error != null) {
+                throw task.error;
+            }
+        }
+        long result = firstMismatch.get();
+        return result == Long.MAX_VALUE ? EQUAL : result;
+    }
+
+    private static final class RegionTask extends RecursiveAction {
+        private final FileChannel channel1;
+        private final FileChannel channel2;
+        private final long start;
+        private final long length;
+        private final AtomicLong firstMismatch;
+        private IOException error;
+
+        private RegionTask(FileChannel channel1, FileChannel channel2, long start, long length, AtomicLong firstMismatch) {
+            this.channel1 = channel1;
+            this.channel2 = channel2;
+            this.start = start;
+            this.length = length;
+            this.firstMismatch = firstMismatch;
+        }
+
+        @Override
+        protected void compute() {
+            // 前面的区域已经找到不同之处，本区域的结果不会再被采用
+            if (firstMismatch.get() < start) {
+                return;
+            }
+            try {
+                ByteBuffer buffer1 = channel1.map(FileChannel.MapMode.READ_ONLY, start, length);
+                ByteBuffer buffer2 = channel2.map(FileChannel.MapMode.READ_ONLY, start, length);
+                long index = compare(buffer1, buffer2, start, firstMismatch);
+                if (index != EQUAL) {
+                    long offset = start + index;
+                    long current;
+                    while (offset < (current = firstMismatch.get())) {
+                        if (firstMismatch.compareAndSet(current, offset)) {
+                            break;
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                error = e;
+            }
+        }
+    }
+
+    /**
+     * 逐 8 字节比较两个等长缓冲区
+     * @param start         缓冲区在文件中的起始位置，用于提前结束判断
+     * @param firstMismatch 已知的最靠前不同位置，可以为 null
+     * @return 缓冲区内第一个不同字节的下标，相同或已被更靠前的结果取代时返回 -1
+     */
+    private static long compare(ByteBuffer buffer1, ByteBuffer buffer2, long start, AtomicLong firstMismatch) {
+        buffer1.order(ByteOrder.BIG_ENDIAN);
+        buffer2.order(ByteOrder.BIG_ENDIAN);
+        int limit = buffer1.limit();
+        int i = 0;
+        int nextCheck = CANCEL_CHECK_INTERVAL;
+        for (; i + Long.BYTES <= limit; i += Long.BYTES) {
+            if (buffer1.getLong(i) != buffer2.getLong(i)) {
+                break;
+            }
+            if (i >= nextCheck) {
+                if (firstMismatch != null && firstMismatch.get() < start) {
+                    return EQUAL;
+                }
+                nextCheck += CANCEL_CHECK_INTERVAL;
+            }
+        }
+        for (; i < limit; i++) {
+            if (buffer1.get(i) != buffer2.get(i)) {
+                return i;
+            }
+        }
+        return EQUAL;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path file1 = Files.createTempFile("compare", ".bin");
+        Path file2 = Files.createTempFile("compare", ".bin");
+        try {
+            byte[] data = new byte[200 * 1024 * 1024];
+            Arrays.fill(data, (byte) 7);
+            Files.write(file1, data);
+            data[150_000_003] = 8;
+            Files.write(file2, data);
+
+            long start = System.nanoTime();
+            System.out.println("mismatch: " + mismatch(file1, file2));
+            System.out.printf("FileComparator: %d ms%n", (System.nanoTime() - start) / 1_000_000);
+
+            System.out.println("findIdentical: " + findIdentical(file1, Arrays.asList(file1, file2, Paths.get(file1.toString()))));
+        } finally {
+            Files.deleteIfExists(file1);
+            Files.deleteIfExists(file2);
+        }
+    }
+}
@@ -0,0 +1,317 @@
+package com.lqy.java.file;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
+
+/**
+ * 文件摘要与重复文件查找
+ * file checksums, digests and duplicate detection
+ * <p>
+ * 支持 CRC32C、SHA-256 以及可并行计算的树哈希。大文件按区域映射到内存读取，小文件读入有界缓冲区池中的直接缓冲区，
+ * 并行计算时占用的堆外内存有上限。
+ * <p>
+ * 树哈希：文件按 {@link #CHUNK_SIZE} 切块，每块计算 SHA-256 作为叶子，根为所有叶子哈希依次拼接后的 SHA-256。
+ * 各块可以在多核上并行计算，结果只取决于文件内容，但与整个文件的 SHA-256 不同。
+ */
+public class FileDigest {
+
+    /**
+     * 树哈希的块大小，同时是映射区域的大小
+     */
+    public static final int CHUNK_SIZE = 4 * 1024 * 1024;
+
+    /**
+     * 小于该大小的文件不做内存映射
+     */
+    private static final long MAP_THRESHOLD = 1024 * 1024;
+
+    private static final BufferPool POOL = new BufferPool(256 * 1024,
+            Math.max(4, Runtime.getRuntime().availableProcessors() * 2));
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /**
+     * 计算文件的 CRC32C
+     * @param path 文件
+     * @return CRC32C 值
+     * @throws IOException
+     */
+    public static long crc32c(Path path) throws IOException {
+        Crc32c crc = new Crc32c();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            forEachRegion(channel, 0, channel.size(), crc::update);
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * 计算文件的 SHA-256
+     * @param path 文件
+     * @return 32 字节摘要
+     * @throws IOException
+     */
+    public static byte[] sha256(Path path) throws IOException {
+        MessageDigest digest = newSha256();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            forEachRegion(channel, 0, channel.size(), digest::update);
+        }
+        return digest.digest();
+    }
+
+    /**
+     * 在公共线程池中并行计算树哈希
+     * @param path 文件
+     * @return 32 字节树哈希
+     * @throws IOException
+     */
+    public static byte[] treeHash(Path path) throws IOException {
+        return treeHash(path, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * 并行计算树哈希
+     * parallel tree hash
+     * @param path 文件
+     * @param pool 线程池
+     * @return 32 字节树哈希
+     * @throws IOException
+     */
+    public static byte[] treeHash(Path path, ForkJoinPool pool) throws IOException {
+        TreeHashTask task = new TreeHashTask(path);
+        pool.invoke(task);
+        if (task.error != null) {
+            throw task.error;
+        }
+        return task.hash;
+    }
+
+    /**
+     * 查找目录下内容相同的文件
+     * @param root 根目录
+     * @return 重复文件分组，每组至少两个文件
+     * @throws IOException 根目录无法读取
+     */
+    public static List<List<Path>> findDuplicates(Path root) throws IOException {
+        return findDuplicates(DirectoryWalker.of(root), ForkJoinPool.commonPool());
+    }
+
+    /**
+     * 查找内容相同的文件：遍历时按文件大小分组，只对大小相同的文件计算树哈希。
+     * 遍历期间无法读取的文件（如已被删除）会被忽略。
+     * find duplicate files
+     * @param walker 目录遍历器，可以预先设置过滤条件、深度等
+     * @param pool   计算哈希的线程池
+     * @return 重复文件分组，每组至少两个文件，组内按路径排序，各组按文件大小从大到小排列
+     * @throws IOException 根目录无法读取
+     */
+    public static List<List<Path>> findDuplicates(DirectoryWalker walker, ForkJoinPool pool) throws IOException {
+        Map<Long, List<Path>> bySize = new ConcurrentHashMap<>();
+        walker.walk((path, attributes) -> {
+            if (attributes.isRegularFile()) {
+                bySize.computeIfAbsent(attributes.size(), size -> Collections.synchronizedList(new ArrayList<>())).add(path);
+            }
+        });
+        List<Long> sizes = new ArrayList<>();
+        List<TreeHashTask> tasks = new ArrayList<>();
+        for (Map.Entry<Long, List<Path>> group : bySize.entrySet()) {
+            if (group.getValue().size() > 1) {
+                sizes.add(group.getKey());
+                for (Path path : group.getValue()) {
+                    tasks.add(new TreeHashTask(path));
+                }
+            }
+        }
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(tasks);
+            }
+        });
+
+        Map<Path, byte[]> hashes = new HashMap<>(tasks.size() * 2);
+        for (TreeHashTask task : tasks) {
+            if (task.error == null) {
+                hashes.put(task.path, task.hash);
+            }
+        }
+        sizes.sort(Comparator.reverseOrder());
+        List<List<Path>> duplicates = new ArrayList<>();
+        for (Long size : sizes) {
+            Map<ByteBuffer, List<Path>> byHash = new HashMap<>();
+            for (Path path : bySize.get(size)) {
+                byte[] hash = hashes.get(path);
+                if (hash != null) {
+                    byHash.computeIfAbsent(ByteBuffer.wrap(hash), key -> new ArrayList<>()).add(path);
+                }
+            }
+            for (List<Path> group : byHash.values()) {
+                if (group.size() > 1) {
+                    Collections.sort(group);
+                    duplicates.add(group);
+                }
+            }
+        }
+        return duplicates;
+    }
+
+    /**
+     * 转为小写十六进制字符串
+     */
+    public static String toHex(byte[] bytes) {
+        char[] chars = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            chars[i * 2] = HEX[(bytes[i] >> 4) & 0xF];
+            chars[i * 2 + 1] = HEX[bytes[i] & 0xF];
+        }
+        return new String(chars);
+    }
+
+    private static final class TreeHashTask extends RecursiveAction {
+        private final Path path;
+        private byte[] hash;
+        private IOException error;
+
+        private TreeHashTask(Path path) {
+            this.path = path;
+        }
+
+        @Override
+        protected void compute() {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                long size = channel.size();
+                int chunks = (int) ((size + CHUNK_SIZE - 1) / CHUNK_SIZE);
+                List<LeafTask> leaves = new ArrayList<>(chunks);
+                for (int i = 0; i < chunks; i++) {
+                    long start = (long) i * CHUNK_SIZE;
+                    leaves.add(new LeafTask(channel, start, Math.min(size, start + CHUNK_SIZE)));
+                }
+                if (chunks == 1) {
+                    leaves.get(0).compute();
+                } else {
+                    invokeAll(leaves);
+                }
+                MessageDigest root = newSha256();
+                for (LeafTask leaf : leaves) {
+                    if (leaf.error != null) {
+                        throw leaf.error;
+                    }
+                    root.update(leaf.hash);
+                }
+                hash = root.digest();
+            } catch (IOException e) {
+                error = e;
+            }
+        }
+    }
+
+    private static final class LeafTask extends RecursiveAction {
+        private final FileChannel channel;
+        private final long start;
+        private final long end;
+        private byte[] hash;
+        private IOException error;
+
+        private LeafTask(FileChannel channel, long start, long end) {
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                MessageDigest digest = newSha256();
+                forEachRegion(channel, start, end, digest::update);
+                hash = digest.digest();
+            } catch (IOException e) {
+                error = e;
+            }
+        }
+    }
+
+    /**
+     * 依次把 [start, end) 的内容交给 action：大文件按区域映射，小文件经缓冲区池读取
+     */
+    private static void forEachRegion(FileChannel channel, long start, long end, Consumer<ByteBuffer> action)
+            throws IOException {
+        if (channel.size() >= MAP_THRESHOLD) {
+            for (long position = start; position < end; position += CHUNK_SIZE) {
+                action.accept(channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(CHUNK_SIZE, end - position)));
+            }
+            return;
+        }
+        ByteBuffer buffer = POOL.acquire();
+        try {
+            long position = start;
+            while (position < end) {
+                buffer.clear();
+                buffer.limit((int) Math.min(buffer.capacity(), end - position));
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    break;
+                }
+                position += read;
+                buffer.flip();
+                action.accept(buffer);
+            }
+        } finally {
+            POOL.release(buffer);
+        }
+    }
+
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path file = Files.createTempFile("digest", ".bin");
+        try {
+            byte[] data = new byte[128 * 1024 * 1024];
+            for (int i = 0; i < data.length; i++) {
+                data[i] = (byte) (i * 31 + (i >>> 11));
+            }
+            Files.write(file, data);
+
+            long start = System.nanoTime();
+            long crc = crc32c(file);
+            System.out.printf("crc32c:   %08x in %d ms%n", crc, (System.nanoTime() - start) / 1_000_000);
+            start = System.nanoTime();
+            String sha = toHex(sha256(file));
+            System.out.printf("sha256:   %s in %d ms%n", sha, (System.nanoTime() - start) / 1_000_000);
+            start = System.nanoTime();
+            String tree = toHex(treeHash(file));
+            System.out.printf("treeHash: %s in %d ms%n", tree, (System.nanoTime() - start) / 1_000_000);
+        } finally {
+            Files.deleteIfExists(file);
+        }
+
+        Path root = Paths.get(args.length > 0 ? args[0] : System.getProperty("java.home"));
+        long start = System.nanoTime();
+        List<List<Path>> duplicates = findDuplicates(root);
+        System.out.printf("findDuplicates: %d groups in %d ms%n", duplicates.size(), (System.nanoTime() - start) / 1_000_000);
+        for (List<Path> group : duplicates.subList(0, Math.min(3, duplicates.size()))) {
+            System.out.println("  " + group);
+        }
+    }
+}
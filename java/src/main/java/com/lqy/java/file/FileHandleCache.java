@@ -0,0 +1,205 @@
+package com.lqy.java.file;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 只读文件句柄缓存（LRU）
+ * LRU cache of open read-only file channels
+ * <p>
+ * 热点文件保持打开，{@link #open(Path)} 返回的 RandomAccessReader 共享同一个 FileChannel，关闭 reader 只是归还句柄。
+ * 打开的文件数超过上限时淘汰最久未使用的句柄；仍被 reader 使用的句柄在最后一个 reader 关闭后才真正关闭，
+ * 因此瞬时打开的文件数可能略多于上限。
+ * FileChannel 可被中断：读取线程被中断时共享的通道会被关闭，此时句柄被移出缓存，下一次 open 重新打开文件。
+ * <pre>
+ * try (RandomAccessReader reader = cache.open(indexFile)) {
+ *     reader.readFully(offset, buffer);
+ * }
+ * </pre>
+ */
+public class FileHandleCache implements Closeable {
+
+    /**
+     * 共享的 FileChannel 及其引用计数
+     */
+    static final class Handle {
+        private final Path path;
+        private final FileChannel channel;
+        private int references;
+        private boolean evicted;
+
+        private Handle(Path path, FileChannel channel) {
+            this.path = path;
+            this.channel = channel;
+        }
+
+        FileChannel channel() {
+            return channel;
+        }
+    }
+
+    private final int maxOpenFiles;
+    private final Map<Path, Handle> handles;
+    private boolean closed;
+    private long hitCount;
+    private long missCount;
+    private long evictionCount;
+
+    /**
+     * @param maxOpenFiles 最多保持打开的文件数
+     */
+    public FileHandleCache(int maxOpenFiles) {
+        if (maxOpenFiles <= 0) {
+            throw new IllegalArgumentException("maxOpenFiles must be positive: " + maxOpenFiles);
+        }
+        this.maxOpenFiles = maxOpenFiles;
+        this.handles = new LinkedHashMap<Path, Handle>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Path, Handle> eldest) {
+                if (size() > FileHandleCache.this.maxOpenFiles) {
+                    evictionCount++;
+                    retire(eldest.getValue());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * 获取文件的 reader，文件未打开时打开并放入缓存
+     * @param path 文件
+     * @return reader，用完后需要关闭以归还句柄
+     * @throws IOException
+     */
+    public RandomAccessReader open(Path path) throws IOException {
+        return new RandomAccessReader(this, acquire(path.toAbsolutePath().normalize()));
+    }
+
+    private Handle acquire(Path path) throws IOException {
+        synchronized (this) {
+            if (closed) {
+                throw new IOException("FileHandleCache is closed");
+            }
+            Handle handle = handles.get(path);
+            if (handle != null && handle.channel.isOpen()) {
+                hitCount++;
+                handle.references++;
+                return handle;
+            }
+            if (handle != null) {
+                // 通道已被关闭（如读取线程被中断），换成新打开的句柄
+                handles.remove(path);
+                retire(handle);
+            }
+            missCount++;
+        }
+        // 在锁外打开文件，避免慢速文件系统阻塞其他文件的读取
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        synchronized (this) {
+            Handle handle = handles.get(path);
+            if (closed || handle != null) {
+                // 其他线程已经打开了同一个文件，或缓存已关闭
+                channel.close();
+                if (handle == null) {
+                    throw new IOException("FileHandleCache is closed");
+                }
+            } else {
+                handle = new Handle(path, channel);
+                handles.put(path, handle);
+            }
+            handle.references++;
+            return handle;
+        }
+    }
+
+    /**
+     * reader 关闭时归还句柄
+     */
+    synchronized void release(Handle handle) throws IOException {
+        handle.references--;
+        if (handle.evicted && handle.references == 0) {
+            handle.channel.close();
+        }
+    }
+
+    /**
+     * 读取时发现通道已关闭（ClosedChannelException），把句柄移出缓存
+     */
+    synchronized void discard(Handle handle) {
+        if (handles.get(handle.path) == handle) {
+            handles.remove(handle.path);
+            retire(handle);
+        }
+    }
+
+    private void retire(Handle handle) {
+        handle.evicted = true;
+        if (handle.references == 0) {
+            try {
+                handle.channel.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * 关闭指定文件的缓存句柄（如文件将被删除或替换），正在使用的 reader 不受影响
+     * @param path 文件
+     */
+    public synchronized void invalidate(Path path) {
+        Handle handle = handles.remove(path.toAbsolutePath().normalize());
+        if (handle != null) {
+            retire(handle);
+        }
+    }
+
+    /**
+     * 当前缓存的文件
+     */
+    public synchronized List<Path> cachedPaths() {
+        return new ArrayList<>(handles.keySet());
+    }
+
+    public synchronized int size() {
+        return handles.size();
+    }
+
+    public synchronized long hitCount() {
+        return hitCount;
+    }
+
+    public synchronized long missCount() {
+        return missCount;
+    }
+
+    public synchronized long evictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * 关闭所有未被使用的句柄，之后不能再打开新的 reader
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        for (Handle handle : handles.values()) {
+            retire(handle);
+        }
+        handles.clear();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "FileHandleCache{size=" + handles.size() + ", maxOpenFiles=" + maxOpenFiles + ", hits=" + hitCount
+                + ", misses=" + missCount + ", evictions=" + evictionCount + "}";
+    }
+}
@@ -4,6 +4,8 @@ import java.io.*;
 import java.nio.file.*;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
 
 public class FileUtil {
 
@@ -23,7 +25,7 @@ public class FileUtil {
     }
 
     /**
-     * 读取文件内容
+     * 读取文件内容（整个文件读入内存，大文件请使用 {@link LargeFileReader} 流式读取）
      * read file content
      * @param filePath 文件路径
      * @return 文件内容
@@ -36,7 +38,7 @@ public class FileUtil {
     }
 
     /**
-     * 写入文件内容
+     * 写入文件内容（直接覆盖目标文件，需要避免读取方看到写了一半的内容时使用 {@link #writeFileAtomically}）
      * write file content
      * @param filePath 文件路径
      * @param content 写入的内容
@@ -48,6 +50,18 @@ public class FileUtil {
         Files.write(path, bytes);
     }
 
+    /**
+     * 原子地写入文件内容：先写同目录下的临时文件并刷盘，再重命名覆盖目标文件（见 {@link AtomicFileWriter}），
+     * 读取方不会看到写了一半的文件
+     * write file content atomically
+     * @param filePath 文件路径
+     * @param content 写入的内容
+     * @throws IOException
+     */
+    public static void writeFileAtomically(String filePath, String content) throws IOException {
+        AtomicFileWriter.write(Paths.get(filePath), content.getBytes());
+    }
+
     /**
      * 复制文件
      * copy file
@@ -62,22 +76,13 @@ public class FileUtil {
     }
 
     /**
-     * 复制文件
+     * 复制文件（sendfile 零拷贝 transferTo，见 {@link ChannelCopier}）
      * @param sourceFilePath 源文件路径
      * @param targetFilePath 目标文件路径
      * @throws IOException
      */
     public static void copyFile2(String sourceFilePath, String targetFilePath) throws IOException {
-        File sourceFile = new File(sourceFilePath);
-        File targetFile = new File(targetFilePath);
-        try (InputStream is = new FileInputStream(sourceFile);
-             OutputStream os = new FileOutputStream(targetFile)) {
-            byte[] buffer = new byte[1024];
-            int bytesRead;
-            while ((bytesRead = is.read(buffer)) != -1) {
-                os.write(buffer, 0, bytesRead);
-            }
-        }
+        ChannelCopier.copy(Paths.get(sourceFilePath), Paths.get(targetFilePath));
     }
 
     /**
@@ -92,7 +97,7 @@ public class FileUtil {
     }
 
     /**
-     * 追加内容到文件
+     * 追加内容到文件，每次调用都会打开、关闭文件；频繁追加（如日志、审计记录）请使用 {@link FileAppender}
      * append content to file
      * @param filePath 文件路径
      * @param content 追加的内容
@@ -142,25 +147,31 @@ public class FileUtil {
         }
     }
 
+    /**
+     * 递归遍历目录下的所有文件（并行遍历，见 {@link DirectoryWalker}），输出顺序不确定
+     * recursively list all files in directory
+     * @param dirPath 目录路径
+     */
     public static void listAllFilesRecursively(String dirPath) {
-        File dir = new File(dirPath);
-        listFilesRecursively(dir);
+        try {
+            DirectoryWalker.of(Paths.get(dirPath)).followLinks(true)
+                    .walk(path -> System.out.println(path.getFileName()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     /**
-     * 递归遍历目录下的所有文件
-     * recursively list all files in directory
-     * @param dir 目录
+     * 监听目录下文件的增量变更（见 {@link DirectoryWatcher}），代替定期全量遍历
+     * watch directory for created/modified/deleted files
+     * @param dirPath 目录路径
+     * @param listener 变更回调，在后台线程中调用
+     * @return 监听器，关闭即停止监听
+     * @throws IOException
      */
-    private static void listFilesRecursively(File dir) {
-        File[] files = dir.listFiles();
-        for (File file : files) {
-            if (file.isDirectory()) {
-                listFilesRecursively(file);
-            } else {
-                System.out.println(file.getName());
-            }
-        }
+    public static DirectoryWatcher watchDirectory(String dirPath, Consumer<List<DirectoryWatcher.Change>> listener)
+            throws IOException {
+        return DirectoryWatcher.of(Paths.get(dirPath)).start(listener);
     }
 
     /**
@@ -173,11 +184,21 @@ public class FileUtil {
      * @throws IOException
      */
     public static byte[] readFilePart(String filePath, int startPosition, int length) throws IOException {
-        try (RandomAccessFile raf = new RandomAccessFile(filePath, "r")) {
-            byte[] bytes = new byte[length];
-            raf.seek(startPosition);
-            raf.read(bytes);
-            return bytes;
+        return readFilePart(filePath, (long) startPosition, length);
+    }
+
+    /**
+     * 读取文件的一部分，支持 2GB 以上的偏移量；频繁随机读取请使用 {@link RandomAccessReader} 或 {@link FileHandleCache}
+     * read part of file
+     * @param filePath 文件路径
+     * @param startPosition 开始位置
+     * @param length 最多读取的长度
+     * @return 读到的字节，文件提前结束时短于 length
+     * @throws IOException
+     */
+    public static byte[] readFilePart(String filePath, long startPosition, int length) throws IOException {
+        try (RandomAccessReader reader = RandomAccessReader.open(Paths.get(filePath))) {
+            return reader.read(startPosition, length);
         }
     }
 
@@ -206,92 +227,130 @@ public class FileUtil {
     }
 
     /**
-     * 文件对比（逐字节比较）
-     * compare files byte by byte
+     * 文件对比（内存映射，按 8 字节分块并行比较，见 {@link FileComparator}）
+     * compare files using memory-mapped, parallel chunk comparison
      * @param filePath1 文件路径1
      * @param filePath2 文件路径2
      * @return 是否相同
      * @throws IOException
      */
     public static boolean filesAreEqual(String filePath1, String filePath2) throws IOException {
-        File file1 = new File(filePath1);
-        File file2 = new File(filePath2);
-
-        if (file1.length() != file2.length()) {
-            return false;
-        }
-
-        try (InputStream is1 = new FileInputStream(file1);
-             InputStream is2 = new FileInputStream(file2)) {
-            int data1;
-            int data2;
-            while ((data1 = is1.read()) != -1) {
-                data2 = is2.read();
-                if (data1 != data2) {
-                    return false;
-                }
-            }
-        }
-        return true;
+        return FileComparator.contentEquals(Paths.get(filePath1), Paths.get(filePath2));
     }
 
     /**
-     * 搜索文件（根据文件名）
+     * 搜索文件（根据文件名，并行遍历，见 {@link DirectoryWalker}），结果顺序不确定
      * search files by name
      * @param dirPath 目录路径
      * @param fileName 文件名
      * @return 文件列表
      */
     public static List<File> searchFilesByName(String dirPath, String fileName) {
-        File dir = new File(dirPath);
         List<File> result = new ArrayList<>();
-        searchFilesRecursively(dir, fileName, result);
+        try {
+            List<Path> paths = DirectoryWalker.of(Paths.get(dirPath)).followLinks(true)
+                    .filter((path, attributes) -> path.getFileName().toString().equals(fileName))
+                    .collect();
+            for (Path path : paths) {
+                result.add(path.toFile());
+            }
+        } catch (IOException e) {
+            // 目录不存在或无法读取时返回空列表
+        }
         return result;
     }
 
     /**
-     * 递归搜索文件（根据文件名）
-     * recursively search files by name
-     * @param dir 目录
-     * @param fileName 文件名
-     * @param result 结果列表
+     * 查找目录下内容相同的文件（先按大小分组，再比较树哈希，见 {@link FileDigest}）
+     * find duplicate files in directory
+     * @param dirPath 目录路径
+     * @return 重复文件分组，每组至少两个文件
+     * @throws IOException
      */
-    private static void searchFilesRecursively(File dir, String fileName, List<File> result) {
-        File[] files = dir.listFiles();
-        if (files == null) {
-            return;
-        }
-        for (File file : files) {
-            if (file.isDirectory()) {
-                searchFilesRecursively(file, fileName, result);
-            } else {
-                if (file.getName().equals(fileName)) {
-                    result.add(file);
-                }
+    public static List<List<File>> findDuplicateFiles(String dirPath) throws IOException {
+        List<List<File>> result = new ArrayList<>();
+        for (List<Path> group : FileDigest.findDuplicates(Paths.get(dirPath))) {
+            List<File> files = new ArrayList<>(group.size());
+            for (Path path : group) {
+                files.add(path.toFile());
             }
+            result.add(files);
         }
+        return result;
     }
 
     /**
-     * 文件合并
+     * 文件合并（sendfile 零拷贝 transferTo，见 {@link ChannelCopier}）
      * merge files
      * @param sourceFilePaths 源文件路径列表
      * @param targetFilePath 目标文件路径
      * @throws IOException
      */
     public static void mergeFiles(List<String> sourceFilePaths, String targetFilePath) throws IOException {
-        try (OutputStream os = new FileOutputStream(targetFilePath)) {
-            for (String sourceFilePath : sourceFilePaths) {
-                File sourceFile = new File(sourceFilePath);
-                try (InputStream is = new FileInputStream(sourceFile)) {
-                    byte[] buffer = new byte[1024];
-                    int bytesRead;
-                    while ((bytesRead = is.read(buffer)) != -1) {
-                        os.write(buffer, 0, bytesRead);
-                    }
-                }
+        ChannelCopier.merge(toPaths(sourceFilePaths), Paths.get(targetFilePath));
+    }
+
+    /**
+     * 并行文件合并：预分配目标文件，各源文件由不同线程写入各自的偏移量
+     * merge files in parallel into a preallocated target
+     * @param sourceFilePaths 源文件路径列表
+     * @param targetFilePath 目标文件路径
+     * @throws IOException
+     */
+    public static void mergeFilesParallel(List<String> sourceFilePaths, String targetFilePath) throws IOException {
+        ChannelCopier.mergeParallel(toPaths(sourceFilePaths), Paths.get(targetFilePath), ForkJoinPool.commonPool());
+    }
+
+    /**
+     * 写入 GZIP 压缩的文件内容
+     * write gzip compressed file content
+     * @param filePath 文件路径
+     * @param content 写入的内容
+     * @throws IOException
+     */
+    public static void writeCompressedFile(String filePath, String content) throws IOException {
+        try (OutputStream out = CompressedFiles.newOutputStream(Paths.get(filePath), CompressionCodec.GZIP)) {
+            out.write(content.getBytes());
+        }
+    }
+
+    /**
+     * 读取 GZIP 压缩的文件内容
+     * read gzip compressed file content
+     * @param filePath 文件路径
+     * @return 解压后的文件内容
+     * @throws IOException
+     */
+    public static String readCompressedFile(String filePath) throws IOException {
+        try (InputStream in = CompressedFiles.newInputStream(Paths.get(filePath), CompressionCodec.GZIP)) {
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                content.write(buffer, 0, read);
             }
+            return new String(content.toByteArray());
+        }
+    }
+
+    /**
+     * 合并文件并写成 GZIP 压缩文件，各块并行压缩（见 {@link CompressedFiles#compressParallel}）
+     * merge files into a gzip compressed target
+     * @param sourceFilePaths 源文件路径列表
+     * @param targetFilePath 目标文件路径
+     * @throws IOException
+     */
+    public static void mergeFilesCompressed(List<String> sourceFilePaths, String targetFilePath) throws IOException {
+        CompressedFiles.compressParallel(toPaths(sourceFilePaths), Paths.get(targetFilePath), CompressionCodec.GZIP,
+                ForkJoinPool.commonPool());
+    }
+
+    private static List<Path> toPaths(List<String> filePaths) {
+        List<Path> paths = new ArrayList<>(filePaths.size());
+        for (String filePath : filePaths) {
+            paths.add(Paths.get(filePath));
         }
+        return paths;
     }
 
 }
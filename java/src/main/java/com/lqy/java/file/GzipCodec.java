@@ -0,0 +1,57 @@
+package com.lqy.java.file;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * GZIP 编解码器，多个 GZIP member 首尾相接仍是合法的 .gz 文件（与 pigz 相同），因此支持分块并行压缩
+ * gzip codec
+ */
+public class GzipCodec implements CompressionCodec {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final int level;
+
+    public GzipCodec() {
+        this(Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * @param level 压缩级别，0-9 或 Deflater.DEFAULT_COMPRESSION
+     */
+    public GzipCodec(int level) {
+        if ((level < 0 || level > 9) && level != Deflater.DEFAULT_COMPRESSION) {
+            throw new IllegalArgumentException("Invalid compression level: " + level);
+        }
+        this.level = level;
+    }
+
+    @Override
+    public OutputStream compress(OutputStream out) throws IOException {
+        return new GZIPOutputStream(out, BUFFER_SIZE) {
+            {
+                def.setLevel(level);
+            }
+        };
+    }
+
+    @Override
+    public InputStream decompress(InputStream in) throws IOException {
+        // GZIPInputStream 会依次读取首尾相接的多个 member
+        return new GZIPInputStream(in, BUFFER_SIZE);
+    }
+
+    @Override
+    public String getExtension() {
+        return ".gz";
+    }
+
+    @Override
+    public boolean isConcatenable() {
+        return true;
+    }
+}
@@ -0,0 +1,346 @@
+package com.lqy.java.file;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * 大文件流式读取
+ * streaming reader for large files
+ * <p>
+ * 与 FileUtil.readFile 一次读入整个文件不同，这里按块从 FileChannel 读取，内存占用与文件大小无关：
+ * <ul>
+ *     <li>{@link #forEachLine} 逐行回调，行内容以复用的 CharBuffer 传入，仅在回调期间有效，需要保留时调用 toString()</li>
+ *     <li>{@link #forEachChunk} 按固定大小的块回调，块缓冲区同样复用</li>
+ *     <li>{@link #splitByLines} 把文件切成按行对齐的字节区间，配合 {@link #forEachLineParallel} 在多核上并行处理</li>
+ * </ul>
+ * 行以 '\n' 分隔（行尾的 '\r' 会被去掉），因此字符集必须以单字节 0x0A 表示换行，如 UTF-8、GBK、ISO-8859-1，不支持 UTF-16。
+ */
+public class LargeFileReader {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final byte LF = '\n';
+    private static final byte CR = '\r';
+
+    /**
+     * 文件中的字节区间 [start, end)
+     */
+    public static final class FileRange {
+        private final long start;
+        private final long end;
+
+        public FileRange(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        public long getStart() {
+            return start;
+        }
+
+        public long getEnd() {
+            return end;
+        }
+
+        public long length() {
+            return end - start;
+        }
+
+        @Override
+        public String toString() {
+            return "[" + start + ", " + end + ")";
+        }
+    }
+
+    /**
+     * 逐行读取整个文件
+     * read the whole file line by line
+     * @param path    文件
+     * @param charset 字符集
+     * @param action  行回调，CharSequence 仅在回调期间有效
+     * @throws IOException
+     */
+    public static void forEachLine(Path path, Charset charset, Consumer<CharSequence> action) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            forEachLine(channel, charset, new FileRange(0, channel.size()), action);
+        }
+    }
+
+    /**
+     * 逐行读取文件的一个区间，区间应按行对齐（见 {@link #splitByLines}）
+     * @param path    文件
+     * @param charset 字符集
+     * @param range   字节区间
+     * @param action  行回调，CharSequence 仅在回调期间有效
+     * @throws IOException
+     */
+    public static void forEachLine(Path path, Charset charset, FileRange range, Consumer<CharSequence> action) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            forEachLine(channel, charset, range, action);
+        }
+    }
+
+    /**
+     * 并行逐行处理：按 CPU 数切分为按行对齐的区间，各区间在线程池中并行读取，行回调会被多个线程并发调用，顺序不确定
+     * @param path    文件
+     * @param charset 字符集
+     * @param pool    线程池
+     * @param action  行回调，必须线程安全，CharSequence 仅在回调期间有效
+     * @throws IOException
+     */
+    public static void forEachLineParallel(Path path, Charset charset, ForkJoinPool pool, Consumer<CharSequence> action)
+            throws IOException {
+        List<FileRange> ranges = splitByLines(path, pool.getParallelism() * 4);
+        List<RangeTask> tasks = new ArrayList<>(ranges.size());
+        for (FileRange range : ranges) {
+            tasks.add(new RangeTask(path, charset, range, action));
+        }
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(tasks);
+            }
+        });
+        for (RangeTask task : tasks) {
+            if (task.error != null) {
+                throw task.error;
+            }
+        }
+    }
+
+    private static final class RangeTask extends RecursiveAction {
+        private final Path path;
+        private final Charset charset;
+        private final FileRange range;
+        private final Consumer<CharSequence> action;
+        private IOException error;
+
+        private RangeTask(Path path, Charset charset, FileRange range, Consumer<CharSequence> action) {
+            this.path = path;
+            this.charset = charset;
+            this.range = range;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                forEachLine(path, charset, range, action);
+            } catch (IOException e) {
+                error = e;
+            }
+        }
+    }
+
+    /**
+     * 按固定大小的块读取文件，最后一块可能不足 chunkSize
+     * read the file in fixed-size chunks
+     * @param path      文件
+     * @param chunkSize 块大小
+     * @param action    块回调，ByteBuffer 被复用，仅在回调期间有效
+     * @throws IOException
+     */
+    public static void forEachChunk(Path path, int chunkSize, Consumer<ByteBuffer> action) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(chunkSize);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            while (true) {
+                buffer.clear();
+                while (buffer.hasRemaining() && channel.read(buffer) != -1) {
+                    // 读满一块或到达文件末尾
+                }
+                if (buffer.position() == 0) {
+                    return;
+                }
+                buffer.flip();
+                action.accept(buffer);
+            }
+        }
+    }
+
+    /**
+     * 把文件切分为最多 parts 个按行对齐的字节区间：每个区间从行首开始，到某一行的换行符之后结束
+     * split the file into line-aligned byte ranges
+     * @param path  文件
+     * @param parts 期望的区间数
+     * @return 区间列表，按位置排列，首尾相接覆盖整个文件
+     * @throws IOException
+     */
+    public static List<FileRange> splitByLines(Path path, int parts) throws IOException {
+        if (parts <= 0) {
+            throw new IllegalArgumentException("parts must be positive: " + parts);
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size == 0) {
+                return Collections.emptyList();
+            }
+            List<FileRange> ranges = new ArrayList<>(parts);
+            ByteBuffer buffer = ByteBuffer.allocate(8 * 1024);
+            long start = 0;
+            for (int i = 1; i < parts && start < size; i++) {
+                long target = Math.max(start, size * i / parts);
+                long end = nextLineStart(channel, target, size, buffer);
+                if (end > start) {
+                    ranges.add(new FileRange(start, end));
+                    start = end;
+                }
+            }
+            if (start < size) {
+                ranges.add(new FileRange(start, size));
+            }
+            return ranges;
+        }
+    }
+
+    /**
+     * 从 position 开始查找下一个换行符，返回其后一个字节的位置，找不到返回 size
+     */
+    private static long nextLineStart(FileChannel channel, long position, long size, ByteBuffer buffer) throws IOException {
+        // position 本身若是行首（前一字节为换行符）则无需移动
+        if (position > 0) {
+            position--;
+        }
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == LF) {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    private static void forEachLine(FileChannel channel, Charset charset, FileRange range, Consumer<CharSequence> action)
+            throws IOException {
+        checkCharset(charset);
+        LineDecoder decoder = new LineDecoder(charset, action);
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        long position = range.getStart();
+        long end = Math.min(range.getEnd(), channel.size());
+        while (position < end) {
+            if (!buffer.hasRemaining()) {
+                // 单行超过缓冲区，扩容
+                ByteBuffer larger = ByteBuffer.allocate(buffer.capacity() * 2);
+                buffer.flip();
+                larger.put(buffer);
+                buffer = larger;
+            }
+            int toRead = (int) Math.min(buffer.remaining(), end - position);
+            int limit = buffer.limit();
+            buffer.limit(buffer.position() + toRead);
+            int read = channel.read(buffer, position);
+            buffer.limit(limit);
+            if (read <= 0) {
+                break;
+            }
+            position += read;
+            buffer.flip();
+            int lineStart = 0;
+            int length = buffer.limit();
+            for (int i = 0; i < length; i++) {
+                if (buffer.get(i) == LF) {
+                    decoder.emit(buffer, lineStart, i);
+                    lineStart = i + 1;
+                }
+            }
+            buffer.position(lineStart);
+            buffer.compact();
+        }
+        buffer.flip();
+        if (buffer.hasRemaining()) {
+            decoder.emit(buffer, 0, buffer.limit());
+        }
+    }
+
+    /**
+     * 把字节行解码到复用的 CharBuffer
+     */
+    private static final class LineDecoder {
+        private final CharsetDecoder decoder;
+        private final Consumer<CharSequence> action;
+        private CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+
+        private LineDecoder(Charset charset, Consumer<CharSequence> action) {
+            this.decoder = charset.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            this.action = action;
+        }
+
+        private void emit(ByteBuffer buffer, int start, int end) {
+            if (end > start && buffer.get(end - 1) == CR) {
+                end--;
+            }
+            int maxChars = (int) Math.ceil((end - start) * (double) decoder.maxCharsPerByte());
+            if (chars.capacity() < maxChars) {
+                chars = CharBuffer.allocate(maxChars);
+            }
+            int position = buffer.position();
+            int limit = buffer.limit();
+            buffer.limit(end).position(start);
+            chars.clear();
+            decoder.reset();
+            decoder.decode(buffer, chars, true);
+            decoder.flush(chars);
+            chars.flip();
+            buffer.limit(limit).position(position);
+            action.accept(chars);
+        }
+    }
+
+    private static void checkCharset(Charset charset) {
+        byte[] newline = "\n".getBytes(charset);
+        if (newline.length != 1 || newline[0] != LF) {
+            throw new IllegalArgumentException("Charset must encode '\\n' as a single 0x0A byte: " + charset);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path file = Files.createTempFile("lines", ".log");
+        try {
+            StringBuilder content = new StringBuilder();
+            for (int i = 0; i < 1_000_000; i++) {
+                content.append("2024-01-01 00:00:00 INFO 第").append(i).append("行\r\n");
+            }
+            Files.write(file, content.toString().getBytes(StandardCharsets.UTF_8));
+
+            LongAdder lines = new LongAdder();
+            long start = System.nanoTime();
+            forEachLine(file, StandardCharsets.UTF_8, line -> lines.increment());
+            System.out.printf("forEachLine: %d lines in %d ms%n", lines.sum(), (System.nanoTime() - start) / 1_000_000);
+
+            lines.reset();
+            start = System.nanoTime();
+            forEachLineParallel(file, StandardCharsets.UTF_8, ForkJoinPool.commonPool(), line -> lines.increment());
+            System.out.printf("forEachLineParallel: %d lines in %d ms%n", lines.sum(), (System.nanoTime() - start) / 1_000_000);
+
+            System.out.println("splitByLines: " + splitByLines(file, 4));
+
+            LongAdder bytes = new LongAdder();
+            forEachChunk(file, 1024 * 1024, chunk -> bytes.add(chunk.remaining()));
+            System.out.println("forEachChunk: " + bytes.sum() + " bytes, file size " + Files.size(file));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package com.lqy.java.file;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 随机位置读取
+ * positional reader over an open FileChannel
+ * <p>
+ * 使用 FileChannel 的定位读（pread），不改变通道位置，多个线程可以共享同一个 reader。偏移量为 long，支持 2GB 以上的文件；
+ * 数据读入调用方提供的缓冲区，readFully 会循环读取直到读满。{@link #readBatch} 先把请求按位置排序，
+ * 相邻（间隔不超过 {@link #MAX_GAP}）的区间合并为一次 I/O，再把数据分发到各自的缓冲区。
+ * <p>
+ * 通过 {@link #open(Path)} 打开的 reader 独占文件句柄；需要频繁打开同一批文件时使用 {@link FileHandleCache#open(Path)}。
+ */
+public class RandomAccessReader implements Closeable {
+
+    /**
+     * 两个区间之间的空隙不超过该值时合并读取
+     */
+    public static final int MAX_GAP = 4 * 1024;
+
+    /**
+     * 合并后单次读取的最大字节数
+     */
+    private static final int MAX_COALESCED_BYTES = 1024 * 1024;
+
+    private static final ThreadLocal<ByteBuffer> SCRATCH =
+            ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(MAX_COALESCED_BYTES));
+
+    /**
+     * 批量读取中的一个请求：从 position 开始读满 target 的剩余空间
+     * a single read of a batch
+     */
+    public static final class ReadRequest {
+        private final long position;
+        private final ByteBuffer target;
+
+        public ReadRequest(long position, ByteBuffer target) {
+            if (position < 0) {
+                throw new IllegalArgumentException("position must not be negative: " + position);
+            }
+            this.position = position;
+            this.target = target;
+        }
+
+        public long getPosition() {
+            return position;
+        }
+
+        public ByteBuffer getTarget() {
+            return target;
+        }
+
+        private long end() {
+            return position + target.remaining();
+        }
+    }
+
+    private final FileChannel channel;
+    private final FileHandleCache cache;
+    private final FileHandleCache.Handle handle;
+    private volatile boolean closed;
+
+    private RandomAccessReader(FileChannel channel) {
+        this.channel = channel;
+        this.cache = null;
+        this.handle = null;
+    }
+
+    RandomAccessReader(FileHandleCache cache, FileHandleCache.Handle handle) {
+        this.channel = handle.channel();
+        this.cache = cache;
+        this.handle = handle;
+    }
+
+    /**
+     * 打开文件，reader 独占文件句柄
+     * @param path 文件
+     * @return reader
+     * @throws IOException
+     */
+    public static RandomAccessReader open(Path path) throws IOException {
+        return new RandomAccessReader(FileChannel.open(path, StandardOpenOption.READ));
+    }
+
+    /**
+     * 文件大小
+     */
+    public long size() throws IOException {
+        return channel.size();
+    }
+
+    /**
+     * 从 position 开始读入 target，可能读不满
+     * @return 读取的字节数，position 不小于文件大小时返回 -1
+     * @throws IOException
+     */
+    public int read(long position, ByteBuffer target) throws IOException {
+        return read(target, position);
+    }
+
+    /**
+     * 从 position 开始读满 target 的剩余空间
+     * @param position 文件偏移量
+     * @param target   目标缓冲区
+     * @throws EOFException 文件在读满之前结束
+     * @throws IOException
+     */
+    public void readFully(long position, ByteBuffer target) throws IOException {
+        long offset = position;
+        while (target.hasRemaining()) {
+            int read = read(target, offset);
+            if (read < 0) {
+                throw new EOFException("Reached end of file at " + offset + " while reading " + target.remaining()
+                        + " more bytes");
+            }
+            offset += read;
+        }
+    }
+
+    /**
+     * 从 position 开始读满 bytes[offset, offset + length)
+     * @throws EOFException 文件在读满之前结束
+     * @throws IOException
+     */
+    public void readFully(long position, byte[] bytes, int offset, int length) throws IOException {
+        readFully(position, ByteBuffer.wrap(bytes, offset, length));
+    }
+
+    /**
+     * 从 position 开始最多读取 length 个字节，文件提前结束时返回实际读到的字节
+     * @param position 文件偏移量
+     * @param length   最多读取的字节数
+     * @return 读到的字节
+     * @throws IOException
+     */
+    public byte[] read(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        long offset = position;
+        while (buffer.hasRemaining()) {
+            int read = read(buffer, offset);
+            if (read < 0) {
+                return Arrays.copyOf(buffer.array(), buffer.position());
+            }
+            offset += read;
+        }
+        return buffer.array();
+    }
+
+    private int read(ByteBuffer target, long position) throws IOException {
+        try {
+            return channel.read(target, position);
+        } catch (ClosedChannelException e) {
+            // 共享的通道已被关闭（如其他读取线程被中断），让缓存在下一次 open 时重新打开文件
+            if (cache != null) {
+                cache.discard(handle);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 批量读取：按位置排序后合并相邻区间，每个请求的 target 被读满，position 前移
+     * vectored read, coalescing neighbouring ranges
+     * @param requests 读取请求，区间可以重叠
+     * @return 实际发起的读取次数（合并后的区间数）
+     * @throws EOFException 某个请求超出文件末尾
+     * @throws IOException
+     */
+    public int readBatch(List<ReadRequest> requests) throws IOException {
+        ReadRequest[] sorted = requests.toArray(new ReadRequest[0]);
+        Arrays.sort(sorted, Comparator.comparingLong(ReadRequest::getPosition));
+        int operations = 0;
+        int i = 0;
+        while (i < sorted.length) {
+            long start = sorted[i].position;
+            long end = sorted[i].end();
+            int j = i + 1;
+            while (j < sorted.length && sorted[j].position <= end + MAX_GAP
+                    && Math.max(end, sorted[j].end()) - start <= MAX_COALESCED_BYTES) {
+                end = Math.max(end, sorted[j].end());
+                j++;
+            }
+            operations++;
+            if (j == i + 1) {
+                readFully(start, sorted[i].target);
+            } else {
+                ByteBuffer scratch = SCRATCH.get();
+                scratch.clear().limit((int) (end - start));
+                readFully(start, scratch);
+                for (int k = i; k < j; k++) {
+                    ReadRequest request = sorted[k];
+                    int from = (int) (request.position - start);
+                    ByteBuffer slice = scratch.duplicate();
+                    slice.limit(from + request.target.remaining()).position(from);
+                    request.target.put(slice);
+                }
+            }
+            i = j;
+        }
+        return operations;
+    }
+
+    /**
+     * 关闭 reader；来自 FileHandleCache 的 reader 只归还句柄
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (cache == null) {
+            channel.close();
+        } else {
+            cache.release(handle);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path file = Files.createTempFile("index", ".bin");
+        try {
+            byte[] data = new byte[64 * 1024 * 1024];
+            new Random(1).nextBytes(data);
+            Files.write(file, data);
+
+            int reads = 100_000;
+            int length = 512;
+            Random random = new Random(2);
+            long[] positions = new long[reads];
+            for (int i = 0; i < reads; i++) {
+                positions[i] = random.nextInt(data.length - length);
+            }
+
+            long start = System.nanoTime();
+            for (int i = 0; i < reads / 10; i++) {
+                FileUtil.readFilePart(file.toString(), positions[i], length);
+            }
+            System.out.printf("FileUtil.readFilePart: %d reads in %d ms%n", reads / 10, (System.nanoTime() - start) / 1_000_000);
+
+            try (FileHandleCache cache = new FileHandleCache(16)) {
+                ByteBuffer buffer = ByteBuffer.allocateDirect(length);
+                start = System.nanoTime();
+                for (int i = 0; i < reads; i++) {
+                    try (RandomAccessReader reader = cache.open(file)) {
+                        buffer.clear();
+                        reader.readFully(positions[i], buffer);
+                    }
+                }
+                System.out.printf("cached readFully: %d reads in %d ms, %s%n", reads, (System.nanoTime() - start) / 1_000_000, cache);
+
+                List<ReadRequest> batch = new ArrayList<>(reads);
+                for (long position : positions) {
+                    batch.add(new ReadRequest(position, ByteBuffer.allocate(length)));
+                }
+                start = System.nanoTime();
+                int operations;
+                try (RandomAccessReader reader = cache.open(file)) {
+                    operations = reader.readBatch(batch);
+                }
+                System.out.printf("readBatch: %d reads as %d I/O operations in %d ms%n", reads, operations,
+                        (System.nanoTime() - start) / 1_000_000);
+
+                ReadRequest last = batch.get(reads - 1);
+                byte[] expected = Arrays.copyOfRange(data, (int) last.getPosition(), (int) last.getPosition() + length);
+                System.out.println("content matches: " + Arrays.equals(expected, last.getTarget().array()));
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package com.lqy.java.json;
+
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * 省内存的 JSON 解码，结果为 Map/List/String/Number/Boolean
+ * memory-lean decoding of JSON into plain maps and lists
+ * <p>
+ * 与 Gson 把 JSON 解码为 Map.class 的区别：
+ * <ul>
+ * <li>key 经过 key 池去重，相同的 key 只保留一个 String 实例；</li>
+ * <li>整数保持为 Integer/Long（小整数使用 Integer 缓存），只有小数和超出 long 范围的数才是 Double；</li>
+ * <li>不超过 {@link #SMALL_MAP_MAX_SIZE} 个 key 的对象解码为 {@link CompactMap}，key 顺序相同的对象共享同一个 key 数组；</li>
+ * <li>数组解码为容量与元素个数相同的 ArrayList。</li>
+ * </ul>
+ * key 池和结构缓存有上限，超过后新出现的 key 不再去重。实例线程安全，缓存的大量记录应共用同一个实例。
+ */
+public class CompactMapDecoder {
+
+    /**
+     * 使用 CompactMap 的最大 key 数，更大的对象使用 LinkedHashMap
+     */
+    public static final int SMALL_MAP_MAX_SIZE = 32;
+
+    private static final int MAX_KEYS = 64 * 1024;
+    private static final int MAX_SHAPES = 4096;
+
+    private final Map<String, String> keyPool = new ConcurrentHashMap<>();
+    private final Map<List<String>, String[]> shapes = new ConcurrentHashMap<>();
+
+    /**
+     * 解码任意 JSON 值
+     * @param json JSON 文本
+     * @return Map、List、String、Number、Boolean 或 null
+     * @throws JsonSyntaxException 格式错误或对象中有重复的 key
+     */
+    public Object decode(String json) {
+        return decode(new StringReader(json));
+    }
+
+    /**
+     * 解码 reader 中的 JSON 值，reader 由调用方关闭
+     * @throws JsonSyntaxException 格式错误
+     * @throws JsonIOException     读取错误
+     */
+    public Object decode(Reader reader) {
+        JsonReader in = new JsonReader(reader);
+        in.setLenient(true);
+        try {
+            Object value = read(in);
+            if (in.peek() != JsonToken.END_DOCUMENT) {
+                throw new JsonSyntaxException("JSON document was not fully consumed.");
+            }
+            return value;
+        } catch (MalformedJsonException | IllegalStateException | NumberFormatException e) {
+            throw new JsonSyntaxException(e);
+        } catch (IOException e) {
+            throw new JsonIOException(e);
+        }
+    }
+
+    /**
+     * 解码 JSON 对象
+     * @param json JSON 对象文本
+     * @return Map，JSON 为 null 时返回 null
+     * @throws JsonSyntaxException 不是对象或格式错误
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> decodeMap(String json) {
+        Object value = decode(json);
+        if (value != null && !(value instanceof Map)) {
+            throw new JsonSyntaxException("Expected a JSON object but was " + value.getClass().getSimpleName());
+        }
+        return (Map<String, Object>) value;
+    }
+
+    /**
+     * key 池中的 key 数
+     */
+    public int getKeyPoolSize() {
+        return keyPool.size();
+    }
+
+    private Object read(JsonReader in) throws IOException {
+        switch (in.peek()) {
+            case BEGIN_OBJECT:
+                return readObject(in);
+            case BEGIN_ARRAY:
+                in.beginArray();
+                ArrayList<Object> list = new ArrayList<>();
+                while (in.hasNext()) {
+                    list.add(read(in));
+                }
+                in.endArray();
+                list.trimToSize();
+                return list;
+            case STRING:
+                return in.nextString();
+            case NUMBER:
+                return toNumber(in.nextString());
+            case BOOLEAN:
+                return in.nextBoolean();
+            case NULL:
+                in.nextNull();
+                return null;
+            default:
+                throw new IllegalStateException("Unexpected token " + in.peek() + " at " + in.getPath());
+        }
+    }
+
+    private Map<String, Object> readObject(JsonReader in) throws IOException {
+        in.beginObject();
+        List<String> names = new ArrayList<>();
+        List<Object> values = new ArrayList<>();
+        while (in.hasNext()) {
+            names.add(intern(in.nextName()));
+            values.add(read(in));
+        }
+        in.endObject();
+        if (names.size() <= SMALL_MAP_MAX_SIZE) {
+            return new CompactMap(shape(names, in), values.toArray());
+        }
+        Map<String, Object> map = new LinkedHashMap<>(names.size() * 4 / 3 + 1);
+        for (int i = 0; i < names.size(); i++) {
+            if (map.containsKey(names.get(i))) {
+                throw new JsonSyntaxException("duplicate key: " + names.get(i) + " at " + in.getPath());
+            }
+            map.put(names.get(i), values.get(i));
+        }
+        return map;
+    }
+
+    /**
+     * 共享的 key 数组；只在第一次遇到某种结构时检查重复的 key
+     */
+    private String[] shape(List<String> names, JsonReader in) {
+        String[] keys = shapes.get(names);
+        if (keys != null) {
+            return keys;
+        }
+        keys = names.toArray(new String[0]);
+        for (int i = 1; i < keys.length; i++) {
+            for (int j = 0; j < i; j++) {
+                if (keys[j].equals(keys[i])) {
+                    throw new JsonSyntaxException("duplicate key: " + keys[i] + " at " + in.getPath());
+                }
+            }
+        }
+        if (shapes.size() < MAX_SHAPES) {
+            String[] existing = shapes.putIfAbsent(Arrays.asList(keys), keys);
+            if (existing != null) {
+                return existing;
+            }
+        }
+        return keys;
+    }
+
+    private String intern(String key) {
+        String pooled = keyPool.get(key);
+        if (pooled != null) {
+            return pooled;
+        }
+        if (keyPool.size() >= MAX_KEYS) {
+            return key;
+        }
+        pooled = keyPool.putIfAbsent(key, key);
+        return pooled == null ? key : pooled;
+    }
+
+    /**
+     * 整数保持为 Integer/Long，其余为 Double
+     */
+    static Number toNumber(String literal) {
+        int length = literal.length();
+        int start = length > 0 && literal.charAt(0) == '-' ? 1 : 0;
+        boolean integral = length > start && length - start <= 19;
+        for (int i = start; integral && i < length; i++) {
+            char c = literal.charAt(i);
+            integral = c >= '0' && c <= '9';
+        }
+        if (integral) {
+            try {
+                long value = Long.parseLong(literal);
+                if (value == (int) value) {
+                    return Integer.valueOf((int) value);
+                }
+                return Long.valueOf(value);
+            } catch (NumberFormatException e) {
+                // 超出 long 范围，按 Double 处理
+            }
+        }
+        return Double.valueOf(literal);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static void main(String[] args) {
+        String[] types = {"click", "view", "purchase", "share"};
+        int count = 200_000;
+        List<String> records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            records.add("{\"id\":" + i + ",\"userId\":" + (1_000_000_000_000L + i % 9973) + ",\"type\":\"" + types[i % 4]
+                    + "\",\"timestamp\":" + (1_700_000_000_000L + i * 1000L) + ",\"amount\":" + (i % 100) * 0.5
+                    + ",\"quantity\":" + i % 10 + ",\"currency\":\"CNY\",\"country\":\"CN\",\"city\":\"Hangzhou\""
+                    + ",\"channel\":\"app\",\"version\":3,\"paid\":" + (i % 2 == 0) + ",\"refunded\":false"
+                    + ",\"score\":" + i % 1000 + ",\"rank\":" + i % 50 + ",\"region\":\"east\",\"device\":\"android\""
+                    + ",\"os\":\"14\",\"sessionId\":\"s" + i + "\",\"campaign\":null}");
+        }
+
+        CompactMapDecoder decoder = new CompactMapDecoder();
+        Map<String, Object> sample = decoder.decodeMap(records.get(7));
+        Map<String, Object> gsonSample = GsonUtil.fromJson(records.get(7), Map.class);
+        System.out.println("compact: " + sample);
+        System.out.println("gson:    " + gsonSample);
+        System.out.println("same tree: " + GsonUtil.toJsonTree(sample).equals(GsonUtil.toJsonTree(gsonSample)));
+
+        for (int round = 0; round < 2; round++) {
+            long[] gson = retained(records, record -> GsonUtil.fromJson(record, Map.class));
+            long[] compact = retained(records, decoder::decode);
+            if (round > 0) {
+                System.out.printf("GsonUtil.fromJson(Map.class): %4d bytes/record, %5.2f us/record%n",
+                        gson[0] / count, gson[1] / 1e3 / count);
+                System.out.printf("CompactMapDecoder:            %4d bytes/record, %5.2f us/record%n",
+                        compact[0] / count, compact[1] / 1e3 / count);
+            }
+        }
+    }
+
+    /**
+     * 解码全部记录并保留结果，返回 {增加的堆内存, 耗时纳秒}
+     */
+    private static long[] retained(List<String> records, Function<String, Object> decoder) {
+        long before = usedHeap();
+        long start = System.nanoTime();
+        List<Object> decoded = new ArrayList<>(records.size());
+        for (String record : records) {
+            decoded.add(decoder.apply(record));
+        }
+        long nanos = System.nanoTime() - start;
+        long bytes = usedHeap() - before;
+        if (decoded.size() != records.size()) {
+            throw new IllegalStateException();
+        }
+        return new long[]{bytes, nanos};
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
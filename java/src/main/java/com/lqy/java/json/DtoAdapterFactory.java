@@ -0,0 +1,529 @@
+package com.lqy.java.json;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.TypeAdapterFactory;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * 不使用反射的 DTO 适配器
+ * reflection-free TypeAdapter for hot DTO types
+ * <p>
+ * 字段通过 getter/setter lambda 读写，int/long/double/boolean 字段使用基本类型的函数式接口，读写过程没有反射和装箱；
+ * 其他类型的字段交给 Gson 中对应类型的适配器。按注册顺序写出字段，读取时忽略未知字段，
+ * 与 Gson 的反射适配器一致：基本类型字段遇到 null 时保持默认值。
+ * <pre>
+ * GsonUtil.registerTypeAdapterFactory(DtoAdapterFactory.builder(User.class, User::new)
+ *         .longField("id", User::getId, User::setId)
+ *         .stringField("name", User::getName, User::setName)
+ *         .build());
+ * </pre>
+ */
+public final class DtoAdapterFactory<T> implements TypeAdapterFactory {
+
+    /**
+     * boolean 字段的 setter
+     */
+    public interface ObjBooleanConsumer<T> {
+        void accept(T target, boolean value);
+    }
+
+    private final Class<T> type;
+    private final Supplier<T> constructor;
+    private final List<Field<T>> fields;
+
+    private DtoAdapterFactory(Class<T> type, Supplier<T> constructor, List<Field<T>> fields) {
+        this.type = type;
+        this.constructor = constructor;
+        this.fields = fields;
+    }
+
+    /**
+     * @param type        DTO 类型（只匹配该类本身，不匹配子类）
+     * @param constructor 创建空对象
+     */
+    public static <T> Builder<T> builder(Class<T> type, Supplier<T> constructor) {
+        return new Builder<>(type, constructor);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <R> TypeAdapter<R> create(Gson gson, TypeToken<R> typeToken) {
+        if (typeToken.getRawType() != type) {
+            return null;
+        }
+        return (TypeAdapter<R>) new Adapter<>(gson, constructor, fields);
+    }
+
+    public static final class Builder<T> {
+        private final Class<T> type;
+        private final Supplier<T> constructor;
+        private final List<Field<T>> fields = new ArrayList<>();
+
+        private Builder(Class<T> type, Supplier<T> constructor) {
+            this.type = type;
+            this.constructor = constructor;
+        }
+
+        public Builder<T> intField(String name, ToIntFunction<T> getter, ObjIntConsumer<T> setter) {
+            return add(new Field<T>(name) {
+                @Override
+                void write(JsonWriter out, T value) throws IOException {
+                    out.value(getter.applyAsInt(value));
+                }
+
+                @Override
+                void read(JsonReader in, T target) throws IOException {
+                    try {
+                        setter.accept(target, in.nextInt());
+                    } catch (NumberFormatException e) {
+                        throw new JsonSyntaxException(e);
+                    }
+                }
+            });
+        }
+
+        public Builder<T> longField(String name, ToLongFunction<T> getter, ObjLongConsumer<T> setter) {
+            return add(new Field<T>(name) {
+                @Override
+                void write(JsonWriter out, T value) throws IOException {
+                    out.value(getter.applyAsLong(value));
+                }
+
+                @Override
+                void read(JsonReader in, T target) throws IOException {
+                    try {
+                        setter.accept(target, in.nextLong());
+                    } catch (NumberFormatException e) {
+                        throw new JsonSyntaxException(e);
+                    }
+                }
+            });
+        }
+
+        /**
+         * 与 Gson 一致，未开启 serializeSpecialFloatingPointValues 时写出 NaN、Infinity 会抛出 IllegalArgumentException
+         */
+        public Builder<T> doubleField(String name, ToDoubleFunction<T> getter, ObjDoubleConsumer<T> setter) {
+            return add(new DoubleField<>(name, getter, setter, false));
+        }
+
+        public Builder<T> booleanField(String name, Predicate<T> getter, ObjBooleanConsumer<T> setter) {
+            return add(new Field<T>(name) {
+                @Override
+                void write(JsonWriter out, T value) throws IOException {
+                    out.value(getter.test(value));
+                }
+
+                @Override
+                void read(JsonReader in, T target) throws IOException {
+                    setter.accept(target, in.nextBoolean());
+                }
+            });
+        }
+
+        public Builder<T> stringField(String name, Function<T, String> getter, BiConsumer<T, String> setter) {
+            return add(new Field<T>(name) {
+                @Override
+                void write(JsonWriter out, T value) throws IOException {
+                    String string = getter.apply(value);
+                    if (string == null) {
+                        out.nullValue();
+                    } else {
+                        out.value(string);
+                    }
+                }
+
+                @Override
+                void read(JsonReader in, T target) throws IOException {
+                    // 与 Gson 一致，数字、布尔值也可以读成字符串
+                    setter.accept(target, in.peek() == JsonToken.BOOLEAN ? Boolean.toString(in.nextBoolean()) : in.nextString());
+                }
+
+                @Override
+                void readNull(T target) {
+                    setter.accept(target, null);
+                }
+            });
+        }
+
+        /**
+         * 其他类型的字段（嵌套对象、集合、枚举等），由 Gson 中该类型的适配器读写
+         * @param fieldType 字段类型，泛型使用 new TypeToken&lt;List&lt;String&gt;&gt;() {}.getType()
+         */
+        public <V> Builder<T> field(String name, Type fieldType, Function<T, V> getter, BiConsumer<T, V> setter) {
+            return add(new DelegateField<>(name, fieldType, getter, setter));
+        }
+
+        private Builder<T> add(Field<T> field) {
+            for (Field<T> existing : fields) {
+                if (existing.name.equals(field.name)) {
+                    throw new IllegalArgumentException("Duplicate field: " + field.name);
+                }
+            }
+            fields.add(field);
+            return this;
+        }
+
+        public DtoAdapterFactory<T> build() {
+            return new DtoAdapterFactory<>(type, constructor, new ArrayList<>(fields));
+        }
+    }
+
+    private abstract static class Field<T> {
+        final String name;
+
+        Field(String name) {
+            this.name = name;
+        }
+
+        /**
+         * 需要时解析依赖的其他适配器
+         */
+        Field<T> bind(Gson gson) {
+            return this;
+        }
+
+        /**
+         * 值为 null 时不写出（或按 serializeNulls 写出 null）
+         */
+        abstract void write(JsonWriter out, T value) throws IOException;
+
+        /**
+         * 当前 token 不是 null
+         */
+        abstract void read(JsonReader in, T target) throws IOException;
+
+        /**
+         * 引用类型字段遇到 null 时设置为 null，基本类型字段保持默认值
+         */
+        void readNull(T target) {
+        }
+    }
+
+    private static final class DelegateField<T, V> extends Field<T> {
+        private final Type fieldType;
+        private final Function<T, V> getter;
+        private final BiConsumer<T, V> setter;
+        private final TypeAdapter<V> adapter;
+
+        private DelegateField(String name, Type fieldType, Function<T, V> getter, BiConsumer<T, V> setter) {
+            this(name, fieldType, getter, setter, null);
+        }
+
+        private DelegateField(String name, Type fieldType, Function<T, V> getter, BiConsumer<T, V> setter,
+                              TypeAdapter<V> adapter) {
+            super(name);
+            this.fieldType = fieldType;
+            this.getter = getter;
+            this.setter = setter;
+            this.adapter = adapter;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        Field<T> bind(Gson gson) {
+            TypeAdapter<V> bound = (TypeAdapter<V>) gson.getAdapter(TypeToken.get(fieldType));
+            return new DelegateField<>(name, fieldType, getter, setter, bound);
+        }
+
+        @Override
+        void write(JsonWriter out, T value) throws IOException {
+            adapter.write(out, getter.apply(value));
+        }
+
+        @Override
+        void read(JsonReader in, T target) throws IOException {
+            setter.accept(target, adapter.read(in));
+        }
+
+        @Override
+        void readNull(T target) {
+            setter.accept(target, null);
+        }
+    }
+
+    private static final class DoubleField<T> extends Field<T> {
+        private final ToDoubleFunction<T> getter;
+        private final ObjDoubleConsumer<T> setter;
+        private final boolean specialValues;
+
+        private DoubleField(String name, ToDoubleFunction<T> getter, ObjDoubleConsumer<T> setter, boolean specialValues) {
+            super(name);
+            this.getter = getter;
+            this.setter = setter;
+            this.specialValues = specialValues;
+        }
+
+        @Override
+        Field<T> bind(Gson gson) {
+            return new DoubleField<>(name, getter, setter, allowsSpecialValues(gson));
+        }
+
+        /**
+         * Gson 没有公开 serializeSpecialFloatingPointValues 的取值，用它的 double 适配器在宽松的 JsonWriter 上写一次 NaN 判断
+         */
+        private static boolean allowsSpecialValues(Gson gson) {
+            JsonWriter probe = new JsonWriter(new StringWriter());
+            probe.setLenient(true);
+            try {
+                gson.getAdapter(double.class).write(probe, Double.NaN);
+                return true;
+            } catch (IllegalArgumentException | IOException e) {
+                return false;
+            }
+        }
+
+        @Override
+        void write(JsonWriter out, T value) throws IOException {
+            double number = getter.applyAsDouble(value);
+            if (!specialValues && (Double.isNaN(number) || Double.isInfinite(number))) {
+                throw new IllegalArgumentException(number + " is not a valid double value as per JSON specification. "
+                        + "To override this behavior, use GsonBuilder.serializeSpecialFloatingPointValues() method.");
+            }
+            out.value(number);
+        }
+
+        @Override
+        void read(JsonReader in, T target) throws IOException {
+            try {
+                setter.accept(target, in.nextDouble());
+            } catch (NumberFormatException e) {
+                throw new JsonSyntaxException(e);
+            }
+        }
+    }
+
+    private static final class Adapter<T> extends TypeAdapter<T> {
+        private final Supplier<T> constructor;
+        private final Field<T>[] fields;
+        private final Map<String, Field<T>> byName;
+
+        @SuppressWarnings("unchecked")
+        private Adapter(Gson gson, Supplier<T> constructor, List<Field<T>> fields) {
+            this.constructor = constructor;
+            this.fields = (Field<T>[]) new Field<?>[fields.size()];
+            this.byName = new HashMap<>(fields.size() * 2);
+            for (int i = 0; i < fields.size(); i++) {
+                this.fields[i] = fields.get(i).bind(gson);
+                byName.put(this.fields[i].name, this.fields[i]);
+            }
+        }
+
+        @Override
+        public void write(JsonWriter out, T value) throws IOException {
+            if (value == null) {
+                out.nullValue();
+                return;
+            }
+            out.beginObject();
+            for (Field<T> field : fields) {
+                out.name(field.name);
+                field.write(out, value);
+            }
+            out.endObject();
+        }
+
+        @Override
+        public T read(JsonReader in) throws IOException {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                return null;
+            }
+            T target = constructor.get();
+            in.beginObject();
+            while (in.hasNext()) {
+                Field<T> field = byName.get(in.nextName());
+                if (field == null) {
+                    in.skipValue();
+                } else if (in.peek() == JsonToken.NULL) {
+                    in.nextNull();
+                    field.readNull(target);
+                } else {
+                    field.read(in, target);
+                }
+            }
+            in.endObject();
+            return target;
+        }
+    }
+
+    static final class Order {
+        long id;
+        int quantity;
+        double price;
+        boolean paid;
+        String customer;
+        List<String> tags;
+    }
+
+    static final class User {
+        long id;
+        String name;
+        String email;
+        int age;
+        boolean active;
+    }
+
+    static final class Point {
+        double x;
+        double y;
+        double z;
+    }
+
+    public static void main(String[] args) {
+        Type tagsType = new TypeToken<List<String>>() {
+        }.getType();
+        Gson reflective = new Gson();
+        Gson registered = new GsonBuilder()
+                .registerTypeAdapterFactory(builder(Order.class, Order::new)
+                        .longField("id", o -> o.id, (o, v) -> o.id = v)
+                        .intField("quantity", o -> o.quantity, (o, v) -> o.quantity = v)
+                        .doubleField("price", o -> o.price, (o, v) -> o.price = v)
+                        .booleanField("paid", o -> o.paid, (o, v) -> o.paid = v)
+                        .stringField("customer", o -> o.customer, (o, v) -> o.customer = v)
+                        .<List<String>>field("tags", tagsType, o -> o.tags, (o, v) -> o.tags = v)
+                        .build())
+                .registerTypeAdapterFactory(builder(User.class, User::new)
+                        .longField("id", u -> u.id, (u, v) -> u.id = v)
+                        .stringField("name", u -> u.name, (u, v) -> u.name = v)
+                        .stringField("email", u -> u.email, (u, v) -> u.email = v)
+                        .intField("age", u -> u.age, (u, v) -> u.age = v)
+                        .booleanField("active", u -> u.active, (u, v) -> u.active = v)
+                        .build())
+                .registerTypeAdapterFactory(builder(Point.class, Point::new)
+                        .doubleField("x", p -> p.x, (p, v) -> p.x = v)
+                        .doubleField("y", p -> p.y, (p, v) -> p.y = v)
+                        .doubleField("z", p -> p.z, (p, v) -> p.z = v)
+                        .build())
+                .create();
+
+        Order order = new Order();
+        order.id = 1234567890123L;
+        order.quantity = 3;
+        order.price = 19.99;
+        order.paid = true;
+        order.customer = "lqy";
+        order.tags = Arrays.asList("vip", "express");
+        User user = new User();
+        user.id = 42;
+        user.name = "lqy";
+        user.email = "lqy@example.com";
+        user.age = 18;
+        user.active = true;
+        Point point = new Point();
+        point.x = 1.5;
+        point.y = -2.25;
+        point.z = 1e-3;
+
+        Object[] samples = {order, user, point};
+        for (Object sample : samples) {
+            String json = reflective.toJson(sample);
+            System.out.println(sample.getClass().getSimpleName() + " same output: " + json.equals(registered.toJson(sample))
+                    + ", round trip: " + json.equals(registered.toJson(registered.fromJson(json, sample.getClass()))));
+        }
+
+        int iterations = 1_000_000;
+        for (int round = 0; round < 2; round++) {
+            for (Object sample : samples) {
+                Class<?> type = sample.getClass();
+                String json = reflective.toJson(sample);
+                long reflectiveNanos = measure(reflective, sample, type, json, iterations);
+                long registeredNanos = measure(registered, sample, type, json, iterations);
+                if (round > 0) {
+                    System.out.printf("%-6s reflective %6.0f ns/op, registered %6.0f ns/op, %.2fx%n", type.getSimpleName(),
+                            (double) reflectiveNanos / iterations, (double) registeredNanos / iterations,
+                            (double) reflectiveNanos / registeredNanos);
+                }
+            }
+        }
+    }
+
+    /**
+     * 一次序列化加一次反序列化的耗时。直接调用 TypeAdapter，并且整批对象共用一个 JsonWriter/JsonReader
+     * （写入丢弃输出的 Writer，读取预先拼好的数组），排除每次新建 StringWriter、JsonReader 等与适配器无关的开销
+     */
+    @SuppressWarnings("unchecked")
+    private static long measure(Gson gson, Object sample, Class<?> type, String json, int iterations) {
+        TypeAdapter<Object> adapter = (TypeAdapter<Object>) gson.getAdapter(type);
+        int batch = 1000;
+        StringBuilder array = new StringBuilder(json.length() * batch + batch + 1).append('[');
+        for (int i = 0; i < batch; i++) {
+            array.append(i == 0 ? "" : ",").append(json);
+        }
+        String batchJson = array.append(']').toString();
+        long[] chars = new long[1];
+        Writer sink = new Writer() {
+            @Override
+            public void write(char[] buffer, int offset, int length) {
+                chars[0] += length;
+            }
+
+            @Override
+            public void write(String string, int offset, int length) {
+                chars[0] += length;
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        int objects = 0;
+        long start = System.nanoTime();
+        try {
+            for (int done = 0; done < iterations; done += batch) {
+                JsonWriter out = new JsonWriter(sink);
+                out.beginArray();
+                for (int i = 0; i < batch; i++) {
+                    adapter.write(out, sample);
+                }
+                out.endArray();
+                JsonReader in = new JsonReader(new StringReader(batchJson));
+                in.beginArray();
+                while (in.hasNext()) {
+                    if (adapter.read(in) != null) {
+                        objects++;
+                    }
+                }
+                in.endArray();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        long elapsed = System.nanoTime() - start;
+        if (chars[0] == 0 || objects == 0) {
+            System.out.println();
+        }
+        return elapsed;
+    }
+}
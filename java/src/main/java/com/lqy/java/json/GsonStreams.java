@@ -0,0 +1,255 @@
+package com.lqy.java.json;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.google.gson.stream.MalformedJsonException;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * JSON 数组的流式读写
+ * streaming read/write of JSON arrays
+ * <p>
+ * 基于 JsonReader/JsonWriter，读取时逐个解析数组元素、写出时逐个序列化，任何时刻内存中只有一个元素，
+ * 内存占用与文档大小无关。元素的 TypeAdapter 只查找一次，读写使用 64KB 缓冲区。
+ * <pre>
+ * try (Stream&lt;Event&gt; events = GsonStreams.stream(gson, Paths.get("events.json"), Event.class)) {
+ *     events.filter(...).forEach(...);
+ * }
+ * </pre>
+ */
+public class GsonStreams {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 惰性迭代 JSON 数组的元素，reader 由调用方关闭
+     * @param gson     Gson 实例
+     * @param reader   JSON 数组文本
+     * @param typeOfT  元素类型
+     * @return 元素迭代器，解析错误（包括文本提前结束、数组之后还有内容）时抛出 JsonSyntaxException，读取错误时抛出 JsonIOException
+     */
+    public static <T> Iterator<T> iterator(Gson gson, Reader reader, Type typeOfT) {
+        return new ArrayIterator<>(gson.newJsonReader(reader), adapter(gson, typeOfT));
+    }
+
+    /**
+     * 惰性读取 JSON 数组的元素，关闭流时关闭 reader
+     * @param gson    Gson 实例
+     * @param reader  JSON 数组文本
+     * @param typeOfT 元素类型
+     * @return 元素流
+     */
+    public static <T> Stream<T> stream(Gson gson, Reader reader, Type typeOfT) {
+        Iterator<T> iterator = iterator(gson, reader, typeOfT);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false)
+                .onClose(() -> {
+                    try {
+                        reader.close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    /**
+     * 惰性读取 UTF-8 编码的 JSON 数组，关闭流时关闭 in
+     */
+    public static <T> Stream<T> stream(Gson gson, InputStream in, Type typeOfT) {
+        return stream(gson, new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), BUFFER_SIZE), typeOfT);
+    }
+
+    /**
+     * 惰性读取 UTF-8 编码的 JSON 数组文件，使用后需要关闭流
+     * @throws IOException 文件无法打开
+     */
+    public static <T> Stream<T> stream(Gson gson, Path path, Type typeOfT) throws IOException {
+        return stream(gson, Files.newBufferedReader(path, StandardCharsets.UTF_8), typeOfT);
+    }
+
+    /**
+     * 把元素逐个写成 JSON 数组，writer 不会被关闭
+     * @param gson    Gson 实例
+     * @param values  元素
+     * @param typeOfT 元素类型
+     * @param out     输出
+     * @return 写出的元素个数
+     * @throws IOException
+     */
+    public static <T> long write(Gson gson, Iterator<? extends T> values, Type typeOfT, Writer out) throws IOException {
+        TypeAdapter<T> adapter = adapter(gson, typeOfT);
+        JsonWriter writer = gson.newJsonWriter(out);
+        long count = 0;
+        writer.beginArray();
+        while (values.hasNext()) {
+            adapter.write(writer, values.next());
+            count++;
+        }
+        writer.endArray();
+        writer.flush();
+        return count;
+    }
+
+    /**
+     * 把流中的元素逐个写成 JSON 数组
+     */
+    public static <T> long write(Gson gson, Stream<? extends T> values, Type typeOfT, Writer out) throws IOException {
+        return write(gson, values.iterator(), typeOfT, out);
+    }
+
+    /**
+     * 把元素逐个写成 UTF-8 编码的 JSON 数组，out 不会被关闭
+     */
+    public static <T> long write(Gson gson, Iterator<? extends T> values, Type typeOfT, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        long count = write(gson, values, typeOfT, writer);
+        writer.flush();
+        return count;
+    }
+
+    public static <T> long write(Gson gson, Stream<? extends T> values, Type typeOfT, OutputStream out) throws IOException {
+        return write(gson, values.iterator(), typeOfT, out);
+    }
+
+    /**
+     * 把元素逐个写成 UTF-8 编码的 JSON 数组文件，文件存在时覆盖
+     */
+    public static <T> long write(Gson gson, Stream<? extends T> values, Type typeOfT, Path path) throws IOException {
+        try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            return write(gson, values.iterator(), typeOfT, writer);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> TypeAdapter<T> adapter(Gson gson, Type typeOfT) {
+        return (TypeAdapter<T>) gson.getAdapter(TypeToken.get(typeOfT));
+    }
+
+    private static final class ArrayIterator<T> implements Iterator<T> {
+        private final JsonReader reader;
+        private final TypeAdapter<T> adapter;
+        private boolean started;
+        private boolean finished;
+
+        private ArrayIterator(JsonReader reader, TypeAdapter<T> adapter) {
+            this.reader = reader;
+            this.adapter = adapter;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (finished) {
+                return false;
+            }
+            try {
+                if (!started) {
+                    reader.beginArray();
+                    started = true;
+                }
+                if (reader.hasNext()) {
+                    return true;
+                }
+                reader.endArray();
+                // 与 Gson.fromJson 一致，数组之后不允许再有其他内容，如 [1,2] [3]
+                if (reader.peek() != JsonToken.END_DOCUMENT) {
+                    throw new JsonSyntaxException("JSON document was not fully consumed.");
+                }
+                finished = true;
+                return false;
+            } catch (MalformedJsonException | EOFException | IllegalStateException e) {
+                throw new JsonSyntaxException(e);
+            } catch (IOException e) {
+                throw new JsonIOException(e);
+            }
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            try {
+                return adapter.read(reader);
+            } catch (MalformedJsonException | EOFException | IllegalStateException e) {
+                throw new JsonSyntaxException(e);
+            } catch (IOException e) {
+                throw new JsonIOException(e);
+            }
+        }
+    }
+
+    static final class Event {
+        long id;
+        String type;
+        double value;
+        String[] tags;
+
+        Event(long id, String type, double value, String[] tags) {
+            this.id = id;
+            this.type = type;
+            this.value = value;
+            this.tags = tags;
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        Gson gson = new Gson();
+        Path file = Files.createTempFile("events", ".json");
+        try {
+            int count = 2_000_000;
+            long start = System.nanoTime();
+            long written = write(gson, IntStream.range(0, count)
+                    .mapToObj(i -> new Event(i, i % 3 == 0 ? "click" : "view", i * 0.5, new String[]{"a", "b"})), Event.class, file);
+            System.out.printf("write: %d events, %d MB in %d ms%n", written, Files.size(file) / (1024 * 1024),
+                    (System.nanoTime() - start) / 1_000_000);
+
+            Runtime runtime = Runtime.getRuntime();
+            System.gc();
+            long before = runtime.totalMemory() - runtime.freeMemory();
+            long peak = before;
+            long clicks = 0;
+            start = System.nanoTime();
+            try (Stream<Event> events = stream(gson, file, Event.class)) {
+                Iterator<Event> iterator = events.iterator();
+                for (long i = 0; iterator.hasNext(); i++) {
+                    if ("click".equals(iterator.next().type)) {
+                        clicks++;
+                    }
+                    if (i % 100_000 == 0) {
+                        peak = Math.max(peak, runtime.totalMemory() - runtime.freeMemory());
+                    }
+                }
+            }
+            System.out.printf("stream: %d clicks in %d ms, heap growth while reading <= %d MB%n", clicks,
+                    (System.nanoTime() - start) / 1_000_000, (peak - before) / (1024 * 1024));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
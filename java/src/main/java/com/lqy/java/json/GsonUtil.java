@@ -1,15 +1,95 @@
 package com.lqy.java.json;
 
 import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
+import com.google.gson.TypeAdapterFactory;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
 import java.lang.reflect.Type;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public class GsonUtil {
-    private static final Gson gson = new Gson();
+    /**
+     * 已注册的配置，按注册顺序应用到 GsonBuilder
+     */
+    private static final List<Consumer<GsonBuilder>> registry = new ArrayList<>();
+    /**
+     * extract 使用的已编译路径，超过上限时清空
+     */
+    private static final Map<String, JsonPath> compiledPaths = new ConcurrentHashMap<>();
+    private static final int MAX_COMPILED_PATHS = 1024;
+    private static final CompactMapDecoder compactDecoder = new CompactMapDecoder();
+    private static volatile Gson gson = new Gson();
+    private static volatile JsonTreeConverter tree = new JsonTreeConverter(gson);
+
+    /**
+     * 注册类型适配器（TypeAdapter、JsonSerializer、JsonDeserializer 等），之后的调用使用新的 Gson
+     * register a type adapter and rebuild the shared Gson
+     * @param type 类型
+     * @param typeAdapter 适配器
+     */
+    public static void registerTypeAdapter(Type type, Object typeAdapter) {
+        configure(builder -> builder.registerTypeAdapter(type, typeAdapter));
+    }
+
+    /**
+     * 注册适配器工厂，热点 DTO 可以注册 {@link DtoAdapterFactory}，读写字段时不使用反射
+     * register a type adapter factory and rebuild the shared Gson
+     * @param factory 适配器工厂
+     */
+    public static void registerTypeAdapterFactory(TypeAdapterFactory factory) {
+        configure(builder -> builder.registerTypeAdapterFactory(factory));
+    }
+
+    /**
+     * 追加任意 GsonBuilder 配置（如 serializeNulls、日期格式），之后的调用使用新的 Gson
+     * add a GsonBuilder configuration and rebuild the shared Gson
+     * @param configuration 配置
+     */
+    public static synchronized void configure(Consumer<GsonBuilder> configuration) {
+        registry.add(configuration);
+        rebuild();
+    }
+
+    /**
+     * 清除所有注册，恢复默认的 Gson
+     * clear the registry
+     */
+    public static synchronized void reset() {
+        registry.clear();
+        rebuild();
+    }
+
+    /**
+     * 当前使用的 Gson 实例
+     * @return Gson
+     */
+    public static Gson getGson() {
+        return gson;
+    }
+
+    private static void rebuild() {
+        GsonBuilder builder = new GsonBuilder();
+        for (Consumer<GsonBuilder> configuration : registry) {
+            configuration.accept(builder);
+        }
+        Gson rebuilt = builder.create();
+        tree = new JsonTreeConverter(rebuilt);
+        gson = rebuilt;
+    }
 
     /**
      * 将对象转换为json字符串
@@ -44,6 +124,16 @@ public class GsonUtil {
         return gson.fromJson(json, typeOfT);
     }
 
+    /**
+     * 将json对象字符串转换为省内存的Map（见 {@link CompactMapDecoder}）：key去重，整数保持为Integer/Long，小对象使用数组存储
+     * transform json string to a memory-lean Map
+     * @param json json string
+     * @return Map，json为null时返回null
+     */
+    public static Map<String, Object> fromJsonCompact(String json) {
+        return compactDecoder.decodeMap(json);
+    }
+
     /**
      * 将json字符串转换为JsonObject
      * transform json string to JsonObject
@@ -55,6 +145,36 @@ public class GsonUtil {
         return jsonElement.getAsJsonObject();
     }
 
+    /**
+     * 从json字符串中取出一个路径的值，不构建整棵树（见 {@link JsonPath}），如 extract(json, "$.user.id")
+     * extract the value at a path without parsing the whole document
+     * @param json json string
+     * @param path 路径，支持 $.a.b、$.a[0]、$['a']
+     * @return 路径的值，路径不存在时为 null
+     */
+    public static JsonElement extract(String json, String path) {
+        JsonPath compiled = compiledPaths.get(path);
+        if (compiled == null) {
+            if (compiledPaths.size() >= MAX_COMPILED_PATHS) {
+                compiledPaths.clear();
+            }
+            compiled = JsonPath.compile(path);
+            compiledPaths.put(path, compiled);
+        }
+        return compiled.selectFirst(json);
+    }
+
+    /**
+     * 一次扫描取出多个路径的值，热点路径上应当使用 {@link JsonPath#compile} 预先编译
+     * extract the values at several paths in one pass
+     * @param json json string
+     * @param paths 路径
+     * @return 与路径顺序一致的值，路径不存在时为 null
+     */
+    public static JsonElement[] extract(String json, String... paths) {
+        return JsonPath.compile(paths).select(json);
+    }
+
     /**
      * 将Map转换为JsonObject
      * transform Map to JsonObject
@@ -62,8 +182,117 @@ public class GsonUtil {
      * @return JsonObject
      */
     public static JsonObject mapToJsonObject(Map<String, Object> map) {
-        String json = toJson(map);
-        return parseJsonObject(json);
+        return tree.toTree(map).getAsJsonObject();
+    }
+
+    /**
+     * 将对象直接转换为JsonElement，不经过json字符串（见 {@link JsonTreeConverter}）
+     * transform object to JsonElement without serializing to text
+     * @param obj 对象
+     * @return JsonElement
+     */
+    public static JsonElement toJsonTree(Object obj) {
+        return tree.toTree(obj);
+    }
+
+    /**
+     * 将JsonElement直接转换为指定类型的对象，不经过json字符串
+     * transform JsonElement to specified type object
+     * @param jsonElement JsonElement
+     * @param classOfT 指定类型
+     * @return 指定类型的对象
+     * @param <T> 指定类型
+     */
+    public static <T> T fromJsonTree(JsonElement jsonElement, Class<T> classOfT) {
+        return tree.fromTree(jsonElement, classOfT);
+    }
+
+    /**
+     * 将JsonElement直接转换为指定类型的对象，不经过json字符串
+     * transform JsonElement to specified type object
+     * @param jsonElement JsonElement
+     * @param typeOfT type of object
+     * @return object
+     * @param <T> type of object
+     */
+    public static <T> T fromJsonTree(JsonElement jsonElement, Type typeOfT) {
+        return tree.fromTree(jsonElement, typeOfT);
+    }
+
+    /**
+     * 惰性读取json数组的元素，内存占用与文档大小无关（见 {@link GsonStreams}），关闭流时关闭 reader
+     * lazily read elements of a json array
+     * @param reader json数组
+     * @param typeOfT 元素类型
+     * @return 元素流
+     * @param <T> 元素类型
+     */
+    public static <T> Stream<T> fromJsonArray(Reader reader, Type typeOfT) {
+        return GsonStreams.stream(gson, reader, typeOfT);
+    }
+
+    /**
+     * 惰性读取UTF-8编码的json数组，关闭流时关闭 in
+     * @param in json数组
+     * @param typeOfT 元素类型
+     * @return 元素流
+     * @param <T> 元素类型
+     */
+    public static <T> Stream<T> fromJsonArray(InputStream in, Type typeOfT) {
+        return GsonStreams.stream(gson, in, typeOfT);
+    }
+
+    /**
+     * 惰性读取UTF-8编码的json数组文件，使用后需要关闭流
+     * @param path json数组文件
+     * @param typeOfT 元素类型
+     * @return 元素流
+     * @param <T> 元素类型
+     * @throws IOException
+     */
+    public static <T> Stream<T> fromJsonArray(Path path, Type typeOfT) throws IOException {
+        return GsonStreams.stream(gson, path, typeOfT);
+    }
+
+    /**
+     * 将流中的元素逐个写成UTF-8编码的json数组，out 不会被关闭
+     * write elements as a json array
+     * @param values 元素
+     * @param typeOfT 元素类型
+     * @param out 输出
+     * @return 写出的元素个数
+     * @param <T> 元素类型
+     * @throws IOException
+     */
+    public static <T> long toJsonArray(Stream<? extends T> values, Type typeOfT, OutputStream out) throws IOException {
+        return GsonStreams.write(gson, values, typeOfT, out);
+    }
+
+    /**
+     * 并行读取NDJSON（每行一个json）文件，保持行的顺序（见 {@link NdjsonCodec}）
+     * read a newline-delimited json file in parallel
+     * @param path 文件
+     * @param typeOfT 每行的类型
+     * @return 元素列表
+     * @param <T> 元素类型
+     * @throws IOException
+     */
+    public static <T> List<T> fromNdjson(Path path, Type typeOfT) throws IOException {
+        return NdjsonCodec.readAll(gson, path, typeOfT, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * 并行序列化并写成NDJSON文件
+     * write elements as a newline-delimited json file
+     * @param values 元素
+     * @param typeOfT 元素类型
+     * @param path 文件
+     * @return 写出的行数
+     * @param <T> 元素类型
+     * @throws IOException
+     */
+    public static <T> long toNdjson(Stream<? extends T> values, Type typeOfT, Path path) throws IOException {
+        return NdjsonCodec.write(gson, values, typeOfT, path, ForkJoinPool.commonPool());
     }
 
     public static void main(String[] args) {
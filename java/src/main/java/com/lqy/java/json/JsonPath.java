@@ -0,0 +1,391 @@
+package com.lqy.java.json;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonIOException;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 编译后的 JSON 路径选择器
+ * compiled multi-path selector
+ * <p>
+ * 支持 $.a.b、$.a[0].b、$['a.b'] 形式的路径。用 JsonReader 顺序扫描 token，不在路径上的子树直接 skipValue，
+ * 只有命中的值被解析为 JsonElement。
+ * 对象中重复的 key 与 Gson（JsonObject、parseJsonObject）一致以最后一次出现为准，因此即使所有路径都已找到，
+ * 也会读完文本以确认后面没有同名的 key；被覆盖的路径连同其下更深的路径一起重新取值。
+ * 确定文本中没有重复 key 时可以使用 {@link #firstMatch()}：所有路径都找到后立即返回，不再读取剩余文本。
+ * 实例不可变，可以在线程间共享。
+ * <pre>
+ * JsonPath route = JsonPath.compile("$.user.id", "$.type");
+ * JsonElement[] values = route.select(json);
+ * </pre>
+ */
+public final class JsonPath {
+    private final String[] paths;
+    private final Node root;
+    private final boolean firstMatch;
+
+    private JsonPath(String[] paths, Node root, boolean firstMatch) {
+        this.paths = paths;
+        this.root = root;
+        this.firstMatch = firstMatch;
+    }
+
+    /**
+     * 编译一个或多个路径
+     * @param paths 路径，如 $.user.id、$.items[0].sku
+     * @return 选择器
+     * @throws IllegalArgumentException 路径格式错误
+     */
+    public static JsonPath compile(String... paths) {
+        if (paths.length == 0) {
+            throw new IllegalArgumentException("No path");
+        }
+        Node root = new Node();
+        for (int i = 0; i < paths.length; i++) {
+            Node node = root;
+            for (Object segment : parse(paths[i])) {
+                node = node.child(segment);
+                node.subtree = appendTo(node.subtree, i);
+            }
+            node.results = appendTo(node.results, i);
+        }
+        return new JsonPath(paths.clone(), root, false);
+    }
+
+    /**
+     * 返回在所有路径都找到后立即停止读取的选择器。重复的 key 以第一次出现为准，与 Gson 不同，
+     * 只适用于确定没有重复 key 的文本（如自己的服务生成的 JSON）
+     * @return 新的选择器，路径与当前实例相同
+     */
+    public JsonPath firstMatch() {
+        return firstMatch ? this : new JsonPath(paths, root, true);
+    }
+
+    /**
+     * 编译时使用的路径
+     */
+    public String[] getPaths() {
+        return paths.clone();
+    }
+
+    /**
+     * 从 JSON 文本中选取各路径的值
+     * @param json JSON 文本
+     * @return 与编译时路径顺序一致的值，路径不存在时为 null，值为 JSON null 时为 JsonNull
+     * @throws JsonSyntaxException 读到的部分格式错误
+     */
+    public JsonElement[] select(String json) {
+        return select(new StringReader(json));
+    }
+
+    /**
+     * 从 reader 中选取各路径的值，reader 由调用方关闭
+     * @param reader JSON 文本
+     * @return 与编译时路径顺序一致的值，路径不存在时为 null
+     * @throws JsonSyntaxException 读到的部分格式错误
+     * @throws JsonIOException     读取错误
+     */
+    public JsonElement[] select(Reader reader) {
+        JsonReader in = new JsonReader(reader);
+        in.setLenient(true);
+        Scan scan = new Scan(paths.length, firstMatch);
+        try {
+            visit(in, root, scan);
+        } catch (MalformedJsonException | IllegalStateException | NumberFormatException e) {
+            throw new JsonSyntaxException(e);
+        } catch (IOException e) {
+            throw new JsonIOException(e);
+        }
+        return scan.results;
+    }
+
+    /**
+     * 只取一个路径时的便捷方法
+     * @return 第一个路径的值，不存在时为 null
+     */
+    public JsonElement selectFirst(String json) {
+        return select(json)[0];
+    }
+
+    private static void visit(JsonReader in, Node node, Scan scan) throws IOException {
+        if (node.results != null) {
+            // 命中路径：解析整个子树，更深的路径在子树上继续查找
+            resolve(node, JsonParser.parseReader(in), scan);
+            return;
+        }
+        JsonToken token = in.peek();
+        if (token == JsonToken.BEGIN_OBJECT && node.names != null) {
+            in.beginObject();
+            while (in.hasNext()) {
+                if (scan.isDone()) {
+                    return;
+                }
+                Node child = node.names.get(in.nextName());
+                if (child == null) {
+                    in.skipValue();
+                } else {
+                    scan.reset(child.subtree);
+                    visit(in, child, scan);
+                }
+            }
+            in.endObject();
+        } else if (token == JsonToken.BEGIN_ARRAY && node.elements != null) {
+            in.beginArray();
+            for (int i = 0; in.hasNext(); i++) {
+                if (scan.isDone()) {
+                    return;
+                }
+                Node child = i < node.elements.length ? node.elements[i] : null;
+                if (child == null) {
+                    in.skipValue();
+                } else {
+                    visit(in, child, scan);
+                }
+            }
+            in.endArray();
+        } else {
+            in.skipValue();
+        }
+    }
+
+    private static void resolve(Node node, JsonElement element, Scan scan) {
+        if (node.results != null) {
+            for (int index : node.results) {
+                scan.set(index, element);
+            }
+        }
+        if (node.names != null && element.isJsonObject()) {
+            JsonObject object = element.getAsJsonObject();
+            for (Map.Entry<String, Node> entry : node.names.entrySet()) {
+                JsonElement child = object.get(entry.getKey());
+                if (child != null) {
+                    resolve(entry.getValue(), child, scan);
+                }
+            }
+        }
+        if (node.elements != null && element.isJsonArray()) {
+            JsonArray array = element.getAsJsonArray();
+            for (int i = 0; i < node.elements.length && i < array.size(); i++) {
+                if (node.elements[i] != null) {
+                    resolve(node.elements[i], array.get(i), scan);
+                }
+            }
+        }
+    }
+
+    /**
+     * 把路径拆成片段：String 为对象的 key，Integer 为数组下标
+     */
+    private static List<Object> parse(String path) {
+        if (path == null || !path.startsWith("$")) {
+            throw new IllegalArgumentException("Path must start with '$': " + path);
+        }
+        List<Object> segments = new ArrayList<>();
+        int i = 1;
+        while (i < path.length()) {
+            char c = path.charAt(i);
+            if (c == '.') {
+                int end = i + 1;
+                while (end < path.length() && path.charAt(end) != '.' && path.charAt(end) != '[') {
+                    end++;
+                }
+                if (end == i + 1) {
+                    throw new IllegalArgumentException("Empty name at " + i + ": " + path);
+                }
+                segments.add(path.substring(i + 1, end));
+                i = end;
+            } else if (c == '[') {
+                int close = path.indexOf(']', i);
+                if (close < 0) {
+                    throw new IllegalArgumentException("Unclosed '[' at " + i + ": " + path);
+                }
+                String inner = path.substring(i + 1, close).trim();
+                if (inner.length() >= 2 && (inner.charAt(0) == '\'' || inner.charAt(0) == '"')
+                        && inner.charAt(inner.length() - 1) == inner.charAt(0)) {
+                    segments.add(inner.substring(1, inner.length() - 1));
+                } else {
+                    try {
+                        int index = Integer.parseInt(inner);
+                        if (index < 0) {
+                            throw new IllegalArgumentException("Negative index at " + i + ": " + path);
+                        }
+                        segments.add(index);
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("Invalid index at " + i + ": " + path);
+                    }
+                }
+                i = close + 1;
+            } else {
+                throw new IllegalArgumentException("Unexpected '" + c + "' at " + i + ": " + path);
+            }
+        }
+        return segments;
+    }
+
+    private static final class Node {
+        private Map<String, Node> names;
+        private Node[] elements;
+        private int[] results;
+        /**
+         * 经过该节点的所有路径
+         */
+        private int[] subtree;
+
+        private Node child(Object segment) {
+            if (segment instanceof String) {
+                if (names == null) {
+                    names = new HashMap<>();
+                }
+                return names.computeIfAbsent((String) segment, key -> new Node());
+            }
+            int index = (Integer) segment;
+            if (elements == null) {
+                elements = new Node[index + 1];
+            } else if (elements.length <= index) {
+                elements = Arrays.copyOf(elements, index + 1);
+            }
+            if (elements[index] == null) {
+                elements[index] = new Node();
+            }
+            return elements[index];
+        }
+
+    }
+
+    private static int[] appendTo(int[] array, int value) {
+        if (array == null) {
+            return new int[]{value};
+        }
+        int[] copy = Arrays.copyOf(array, array.length + 1);
+        copy[array.length] = value;
+        return copy;
+    }
+
+    private static final class Scan {
+        private final JsonElement[] results;
+        private final boolean firstMatch;
+        private int remaining;
+
+        private Scan(int count, boolean firstMatch) {
+            this.results = new JsonElement[count];
+            this.firstMatch = firstMatch;
+            this.remaining = count;
+        }
+
+        private boolean isDone() {
+            return firstMatch && remaining == 0;
+        }
+
+        private void set(int index, JsonElement element) {
+            if (results[index] == null) {
+                remaining--;
+            } else if (firstMatch) {
+                return;
+            }
+            results[index] = element;
+        }
+
+        /**
+         * 遇到路径上的 key：默认以最后一次出现为准，清掉前一次取到的值及更深路径的值
+         */
+        private void reset(int[] indices) {
+            if (firstMatch) {
+                return;
+            }
+            for (int index : indices) {
+                if (results[index] != null) {
+                    results[index] = null;
+                    remaining++;
+                }
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        StringBuilder builder = new StringBuilder(256 * 1024);
+        builder.append("{\"type\":\"order.created\",\"user\":{\"id\":42,\"name\":\"lqy\"},\"items\":[");
+        for (int i = 0; builder.length() < 200 * 1024; i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append("{\"sku\":\"SKU-").append(i).append("\",\"qty\":").append(i % 5)
+                    .append(",\"price\":").append(i * 1.25).append(",\"tags\":[\"a\",\"b\"]}");
+        }
+        builder.append("],\"trace\":\"end\"}");
+        String json = builder.toString();
+
+        JsonPath route = compile("$.user.id", "$.type");
+        JsonPath routeFirst = route.firstMatch();
+        JsonPath deep = compile("$.items[3].sku", "$.trace");
+        System.out.println("route: " + Arrays.toString(route.select(json)) + ", deep: " + Arrays.toString(deep.select(json)));
+        JsonObject tree = GsonUtil.parseJsonObject(json);
+        System.out.println("same as tree: " + (tree.getAsJsonObject("user").get("id").equals(route.select(json)[0])
+                && tree.getAsJsonArray("items").get(3).getAsJsonObject().get("sku").equals(deep.select(json)[0])));
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        int iterations = 2_000;
+        for (int round = 0; round < 2; round++) {
+            long start = System.nanoTime();
+            long allocated = allocatedBytes(threads);
+            for (int i = 0; i < iterations; i++) {
+                JsonObject object = GsonUtil.parseJsonObject(json);
+                object.getAsJsonObject("user").get("id");
+                object.get("type");
+            }
+            report(round, "parseJsonObject", iterations, start, threads, allocated);
+
+            start = System.nanoTime();
+            allocated = allocatedBytes(threads);
+            for (int i = 0; i < iterations; i++) {
+                route.select(json);
+            }
+            report(round, "select $.user.id, $.type", iterations, start, threads, allocated);
+
+            start = System.nanoTime();
+            allocated = allocatedBytes(threads);
+            for (int i = 0; i < iterations; i++) {
+                routeFirst.select(json);
+            }
+            report(round, "firstMatch $.user.id, $.type", iterations, start, threads, allocated);
+
+            start = System.nanoTime();
+            allocated = allocatedBytes(threads);
+            for (int i = 0; i < iterations; i++) {
+                deep.select(json);
+            }
+            report(round, "select $.items[3].sku, $.trace", iterations, start, threads, allocated);
+        }
+    }
+
+    private static long allocatedBytes(ThreadMXBean threads) {
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+
+    private static void report(int round, String name, int iterations, long start, ThreadMXBean threads, long allocated) {
+        if (round > 0) {
+            long nanos = System.nanoTime() - start;
+            long bytes = allocatedBytes(threads) - allocated;
+            System.out.printf("%-32s %10.1f us/op %12d bytes/op%n", name + ":", nanos / 1e3 / iterations, bytes / iterations);
+        }
+    }
+}
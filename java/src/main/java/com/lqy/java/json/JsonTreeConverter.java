@@ -0,0 +1,309 @@
+package com.lqy.java.json;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 对象与 JsonElement 树之间的直接转换
+ * direct object/tree conversion
+ * <p>
+ * 不经过 JSON 文本：Map、Collection、数组和基本类型直接构造 JsonObject/JsonArray/JsonPrimitive，
+ * 其他对象（包括 JsonElement，结果是副本）交给 Gson（toJsonTree/fromJsonTree），fromTree 的适配器按类缓存。
+ * 结果与 Gson 序列化后再解析一致：Map 的 key 取 String.valueOf，未开启 serializeNulls 时忽略 Map 中值为 null 的项。
+ * 只有当 Gson 对某个类使用的适配器与默认 Gson 相同时才直接构造，注册了自定义适配器、
+ * 使用 LongSerializationPolicy.STRING、enableComplexMapKeySerialization 等配置影响到的类型交给 Gson。
+ */
+public class JsonTreeConverter {
+    /**
+     * 用于比较适配器的默认 Gson
+     */
+    private static final Gson DEFAULT_GSON = new Gson();
+
+    /**
+     * 可以直接构造节点的叶子类型
+     */
+    private static final List<Class<?>> LEAF_TYPES = Arrays.asList(String.class, Boolean.class, Character.class,
+            Integer.class, Long.class, Double.class, Float.class, Short.class, Byte.class, BigInteger.class, BigDecimal.class);
+
+    private final Gson gson;
+    private final boolean serializeNulls;
+    private final boolean complexMapKeys;
+    private final Map<Class<?>, TypeAdapter<Object>> adapters = new ConcurrentHashMap<>();
+    private final Map<Class<?>, Boolean> direct = new ConcurrentHashMap<>();
+
+    public JsonTreeConverter(Gson gson) {
+        this.gson = gson;
+        this.serializeNulls = gson.serializeNulls();
+        // 开启 enableComplexMapKeySerialization 时，key 为数组的 Map 被序列化为 [[key, value]]
+        this.complexMapKeys = gson.toJsonTree(Collections.singletonMap(Collections.singletonList(0), 0)).isJsonArray();
+    }
+
+    /**
+     * 转换为 JsonElement 树
+     * convert object to a JsonElement tree
+     * @param value 对象，可以为 null
+     * @return JsonElement
+     */
+    public JsonElement toTree(Object value) {
+        if (value == null) {
+            return JsonNull.INSTANCE;
+        }
+        if (!isDirect(value.getClass())) {
+            // Gson.toJsonTree 按 serializeNulls 配置写出，TypeAdapter.toJsonTree 总是保留 null
+            return gson.toJsonTree(value);
+        }
+        if (value instanceof String) {
+            return new JsonPrimitive((String) value);
+        }
+        if (value instanceof Boolean) {
+            return new JsonPrimitive((Boolean) value);
+        }
+        if (value instanceof Number && isFinite((Number) value)) {
+            return new JsonPrimitive((Number) value);
+        }
+        if (value instanceof Character) {
+            return new JsonPrimitive((Character) value);
+        }
+        if (value instanceof Map) {
+            JsonObject object = new JsonObject();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                if (entry.getValue() != null || serializeNulls) {
+                    object.add(String.valueOf(entry.getKey()), toTree(entry.getValue()));
+                }
+            }
+            return object;
+        }
+        if (value instanceof Collection) {
+            Collection<?> collection = (Collection<?>) value;
+            JsonArray array = new JsonArray(collection.size());
+            for (Object element : collection) {
+                array.add(toTree(element));
+            }
+            return array;
+        }
+        if (value.getClass().isArray()) {
+            int length = Array.getLength(value);
+            JsonArray array = new JsonArray(length);
+            for (int i = 0; i < length; i++) {
+                array.add(toTree(Array.get(value, i)));
+            }
+            return array;
+        }
+        return gson.toJsonTree(value);
+    }
+
+    /**
+     * 从 JsonElement 树转换为对象
+     * convert a JsonElement tree to an object
+     * @param element  JsonElement
+     * @param classOfT 目标类型
+     * @return 对象
+     */
+    public <T> T fromTree(JsonElement element, Class<T> classOfT) {
+        Object value = adapter(classOfT).fromJsonTree(element);
+        @SuppressWarnings("unchecked")
+        T result = (T) wrap(classOfT).cast(value);
+        return result;
+    }
+
+    /**
+     * 从 JsonElement 树转换为泛型对象，如 List&lt;User&gt;
+     * @param element JsonElement
+     * @param typeOfT 目标类型
+     * @return 对象
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T fromTree(JsonElement element, Type typeOfT) {
+        if (typeOfT instanceof Class) {
+            return (T) fromTree(element, (Class<?>) typeOfT);
+        }
+        return ((TypeAdapter<T>) gson.getAdapter(TypeToken.get(typeOfT))).fromJsonTree(element);
+    }
+
+    /**
+     * 该类的节点能否直接构造：是支持的类型，且 Gson 使用的适配器与默认 Gson 相同
+     */
+    private boolean isDirect(Class<?> type) {
+        Boolean result = direct.get(type);
+        if (result == null) {
+            result = supported(type) && sameAdapter(type);
+            direct.putIfAbsent(type, result);
+        }
+        return result;
+    }
+
+    private boolean supported(Class<?> type) {
+        if (type.isArray()) {
+            Class<?> component = type.getComponentType();
+            return !component.isPrimitive() || LEAF_TYPES.contains(wrap(component)) && sameAdapter(component);
+        }
+        if (Map.class.isAssignableFrom(type)) {
+            return !complexMapKeys;
+        }
+        return Collection.class.isAssignableFrom(type) || LEAF_TYPES.contains(type);
+    }
+
+    private boolean sameAdapter(Class<?> type) {
+        try {
+            return gson.getAdapter(type).getClass() == DEFAULT_GSON.getAdapter(type).getClass();
+        } catch (RuntimeException e) {
+            return false;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private TypeAdapter<Object> adapter(Class<?> type) {
+        TypeAdapter<Object> adapter = adapters.get(type);
+        if (adapter == null) {
+            adapter = (TypeAdapter<Object>) gson.getAdapter(type);
+            adapters.putIfAbsent(type, adapter);
+        }
+        return adapter;
+    }
+
+    /**
+     * NaN 与无穷大交给 Gson 按其配置处理（默认抛出异常）
+     */
+    private static boolean isFinite(Number number) {
+        if (number instanceof Double) {
+            return !((Double) number).isNaN() && !((Double) number).isInfinite();
+        }
+        if (number instanceof Float) {
+            return !((Float) number).isNaN() && !((Float) number).isInfinite();
+        }
+        return true;
+    }
+
+    /**
+     * 基本类型对应的包装类型
+     */
+    private static Class<?> wrap(Class<?> type) {
+        if (!type.isPrimitive()) {
+            return type;
+        }
+        if (type == int.class) {
+            return Integer.class;
+        }
+        if (type == long.class) {
+            return Long.class;
+        }
+        if (type == double.class) {
+            return Double.class;
+        }
+        if (type == float.class) {
+            return Float.class;
+        }
+        if (type == boolean.class) {
+            return Boolean.class;
+        }
+        if (type == short.class) {
+            return Short.class;
+        }
+        if (type == byte.class) {
+            return Byte.class;
+        }
+        if (type == char.class) {
+            return Character.class;
+        }
+        return Void.class;
+    }
+
+    static final class Route {
+        String service;
+        int weight;
+        List<String> hosts;
+    }
+
+    public static void main(String[] args) {
+        Gson gson = new Gson();
+        JsonTreeConverter converter = new JsonTreeConverter(gson);
+
+        Map<String, Object> request = new LinkedHashMap<>();
+        request.put("requestId", "5f0c2a1e-9b7d-4c1a-8e55-2d3f4a6b7c8d");
+        request.put("timestamp", 1700000000123L);
+        request.put("authenticated", true);
+        request.put("score", 0.87);
+        Map<String, Object> user = new LinkedHashMap<>();
+        user.put("id", 42);
+        user.put("name", "lqy");
+        user.put("roles", Arrays.asList("admin", "ops"));
+        request.put("user", user);
+        List<Object> items = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("sku", "SKU-" + i);
+            item.put("qty", i);
+            item.put("price", i * 9.99);
+            items.add(item);
+        }
+        request.put("items", items);
+        request.put("headers", new String[]{"accept", "content-type"});
+
+        JsonObject expected = JsonParser.parseString(gson.toJson(request)).getAsJsonObject();
+        System.out.println("same tree: " + expected.equals(converter.toTree(request)));
+
+        int iterations = 200_000;
+        for (int round = 0; round < 2; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                JsonParser.parseString(gson.toJson(request));
+            }
+            report(round, "toJson + parseString", iterations, start);
+
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                gson.toJsonTree(request);
+            }
+            report(round, "Gson.toJsonTree", iterations, start);
+
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                converter.toTree(request);
+            }
+            report(round, "JsonTreeConverter.toTree", iterations, start);
+        }
+
+        JsonObject routeTree = converter.toTree(gson.fromJson("{\"service\":\"order\",\"weight\":3,\"hosts\":[\"a\",\"b\"]}",
+                Route.class)).getAsJsonObject();
+        for (int round = 0; round < 2; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                gson.fromJson(routeTree.toString(), Route.class);
+            }
+            report(round, "toString + fromJson", iterations, start);
+
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                converter.fromTree(routeTree, Route.class);
+            }
+            report(round, "JsonTreeConverter.fromTree", iterations, start);
+        }
+    }
+
+    private static void report(int round, String name, int iterations, long start) {
+        if (round > 0) {
+            long nanos = System.nanoTime() - start;
+            System.out.printf("%-28s %8.0f ns/op%n", name + ":", (double) nanos / iterations);
+        }
+    }
+}
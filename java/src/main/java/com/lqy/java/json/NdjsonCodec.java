@@ -0,0 +1,387 @@
+package com.lqy.java.json;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.TypeAdapter;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.lqy.java.file.LargeFileReader;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * 并行 NDJSON（JSON Lines，每行一个 JSON 值）读写
+ * parallel NDJSON codec
+ * <p>
+ * 读取时用 {@link LargeFileReader#splitByLines} 把文件切成按行对齐的块，各块在线程池中并行解析（Gson 实例线程安全）；
+ * 需要保持顺序时按块顺序交付结果，同时在途的块数有上限，内存占用与文件大小无关。
+ * 写出时按批在线程池中并行序列化，再按顺序批量写入文件。文件编码为 UTF-8，空行被忽略。
+ * 每行按 Gson.fromJson 的规则解析（宽松程度取决于 Gson 的配置），且必须恰好是一个 JSON 值，
+ * 否则抛出 JsonSyntaxException，消息中包含行号和该行在文件中的字节偏移量。
+ */
+public class NdjsonCodec {
+
+    /**
+     * 读取时每块的目标大小
+     */
+    private static final long CHUNK_SIZE = 4 * 1024 * 1024;
+
+    /**
+     * 写出时每批的元素个数
+     */
+    private static final int WRITE_BATCH = 4096;
+
+    /**
+     * 并行读取 NDJSON 文件
+     * @param gson    Gson 实例
+     * @param path    文件
+     * @param typeOfT 每行的类型
+     * @param pool    线程池
+     * @param ordered 是否按行的顺序交付；为 false 时 action 会被多个线程并发调用
+     * @param action  元素回调
+     * @throws IOException
+     */
+    public static <T> void read(Gson gson, Path path, Type typeOfT, ForkJoinPool pool, boolean ordered,
+                                Consumer<? super T> action) throws IOException {
+        long chunks = Files.size(path) / CHUNK_SIZE + 1;
+        int parts = (int) Math.min(Integer.MAX_VALUE, Math.max(pool.getParallelism() * 4L, chunks));
+        List<LargeFileReader.FileRange> ranges = LargeFileReader.splitByLines(path, parts);
+        if (ordered) {
+            readOrdered(gson, path, typeOfT, ranges, pool, action);
+            return;
+        }
+        List<ChunkTask<T>> tasks = new ArrayList<>(ranges.size());
+        for (LargeFileReader.FileRange range : ranges) {
+            tasks.add(new ChunkTask<>(gson, path, typeOfT, range, action));
+        }
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(tasks);
+            }
+        });
+        for (ChunkTask<T> task : tasks) {
+            if (task.error != null) {
+                throw task.error;
+            }
+        }
+    }
+
+    /**
+     * 并行读取 NDJSON 文件的所有元素，保持行的顺序
+     * @return 元素列表
+     * @throws IOException
+     */
+    public static <T> List<T> readAll(Gson gson, Path path, Type typeOfT, ForkJoinPool pool) throws IOException {
+        List<T> result = new ArrayList<>();
+        NdjsonCodec.<T>read(gson, path, typeOfT, pool, true, result::add);
+        return result;
+    }
+
+    private static <T> void readOrdered(Gson gson, Path path, Type typeOfT, List<LargeFileReader.FileRange> ranges,
+                                        ForkJoinPool pool, Consumer<? super T> action) throws IOException {
+        int window = pool.getParallelism() * 2;
+        Deque<ForkJoinTask<List<T>>> pending = new ArrayDeque<>(window);
+        try {
+            for (LargeFileReader.FileRange range : ranges) {
+                pending.add(pool.submit(() -> {
+                    List<T> values = new ArrayList<>();
+                    LargeFileReader.forEachLine(path, StandardCharsets.UTF_8, range,
+                            new LineDecoder<T>(gson, path, typeOfT, range, values::add));
+                    return values;
+                }));
+                if (pending.size() >= window) {
+                    await(pending.poll()).forEach(action);
+                }
+            }
+            while (!pending.isEmpty()) {
+                await(pending.poll()).forEach(action);
+            }
+        } finally {
+            for (ForkJoinTask<List<T>> task : pending) {
+                task.cancel(false);
+            }
+        }
+    }
+
+    private static final class ChunkTask<T> extends RecursiveAction {
+        private final Gson gson;
+        private final Path path;
+        private final Type typeOfT;
+        private final LargeFileReader.FileRange range;
+        private final Consumer<? super T> action;
+        private IOException error;
+
+        private ChunkTask(Gson gson, Path path, Type typeOfT, LargeFileReader.FileRange range, Consumer<? super T> action) {
+            this.gson = gson;
+            this.path = path;
+            this.typeOfT = typeOfT;
+            this.range = range;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            try {
+                LargeFileReader.forEachLine(path, StandardCharsets.UTF_8, range,
+                        new LineDecoder<T>(gson, path, typeOfT, range, action));
+            } catch (IOException e) {
+                error = e;
+            }
+        }
+    }
+
+    /**
+     * 逐行解析一个块，记录块内的行号用于错误定位
+     */
+    private static final class LineDecoder<T> implements Consumer<CharSequence> {
+        private final Gson gson;
+        private final Path path;
+        private final Type typeOfT;
+        private final LargeFileReader.FileRange range;
+        private final Consumer<? super T> action;
+        private long lineIndex = -1;
+
+        private LineDecoder(Gson gson, Path path, Type typeOfT, LargeFileReader.FileRange range, Consumer<? super T> action) {
+            this.gson = gson;
+            this.path = path;
+            this.typeOfT = typeOfT;
+            this.range = range;
+            this.action = action;
+        }
+
+        @Override
+        public void accept(CharSequence line) {
+            lineIndex++;
+            if (isBlank(line)) {
+                return;
+            }
+            T value;
+            try {
+                JsonReader reader = gson.newJsonReader(new StringReader(line.toString()));
+                value = gson.fromJson(reader, typeOfT);
+                if (reader.peek() != JsonToken.END_DOCUMENT) {
+                    throw new JsonSyntaxException("JSON document was not fully consumed.");
+                }
+            } catch (JsonParseException | IOException | IllegalStateException | NumberFormatException e) {
+                throw new JsonSyntaxException("Malformed JSON " + locate(path, range.getStart(), lineIndex) + ": "
+                        + e.getMessage(), e);
+            }
+            action.accept(value);
+        }
+    }
+
+    /**
+     * 块内第 lineIndex 行（从 0 开始）的描述：文件中的行号（从 1 开始）和字节偏移量，只在出错时调用
+     */
+    private static String locate(Path path, long rangeStart, long lineIndex) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            long lineNumber = 1;
+            long lineStart = 0;
+            long position = 0;
+            long remaining = lineIndex;
+            while (position < rangeStart || remaining > 0) {
+                buffer.clear();
+                int read = channel.read(buffer, position);
+                if (read <= 0) {
+                    break;
+                }
+                for (int i = 0; i < read && (position + i < rangeStart || remaining > 0); i++) {
+                    if (buffer.get(i) == '\n') {
+                        lineNumber++;
+                        lineStart = position + i + 1;
+                        if (lineStart > rangeStart) {
+                            remaining--;
+                        }
+                    }
+                }
+                position += read;
+            }
+            return "at line " + lineNumber + " (byte offset " + lineStart + ") of " + path;
+        } catch (IOException e) {
+            return "at line " + (lineIndex + 1) + " of the chunk starting at byte offset " + rangeStart + " of " + path;
+        }
+    }
+
+    private static boolean isBlank(CharSequence line) {
+        for (int i = 0; i < line.length(); i++) {
+            if (!Character.isWhitespace(line.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 按批并行序列化并按顺序写出，目标文件存在时覆盖
+     * @param gson    Gson 实例（不使用其 pretty printing 设置，每个元素固定写成一行）
+     * @param values  元素
+     * @param typeOfT 元素类型
+     * @param target  目标文件
+     * @param pool    线程池
+     * @return 写出的行数
+     * @throws IOException
+     */
+    public static <T> long write(Gson gson, Iterator<? extends T> values, Type typeOfT, Path target, ForkJoinPool pool)
+            throws IOException {
+        TypeAdapter<T> adapter = adapter(gson, typeOfT);
+        int window = pool.getParallelism() * 2;
+        Deque<ForkJoinTask<byte[]>> pending = new ArrayDeque<>(window);
+        long count = 0;
+        try (OutputStream out = Files.newOutputStream(target)) {
+            while (values.hasNext()) {
+                List<T> batch = new ArrayList<>(WRITE_BATCH);
+                while (batch.size() < WRITE_BATCH && values.hasNext()) {
+                    batch.add(values.next());
+                }
+                count += batch.size();
+                pending.add(pool.submit(() -> encode(gson, adapter, batch)));
+                if (pending.size() >= window) {
+                    out.write(await(pending.poll()));
+                }
+            }
+            while (!pending.isEmpty()) {
+                out.write(await(pending.poll()));
+            }
+        } finally {
+            for (ForkJoinTask<byte[]> task : pending) {
+                task.cancel(false);
+            }
+        }
+        return count;
+    }
+
+    public static <T> long write(Gson gson, Stream<? extends T> values, Type typeOfT, Path target, ForkJoinPool pool)
+            throws IOException {
+        return write(gson, values.iterator(), typeOfT, target, pool);
+    }
+
+    private static <T> byte[] encode(Gson gson, TypeAdapter<T> adapter, List<T> batch) throws IOException {
+        StringWriter buffer = new StringWriter(batch.size() * 64);
+        JsonWriter writer = new JsonWriter(buffer);
+        writer.setLenient(true);
+        writer.setSerializeNulls(gson.serializeNulls());
+        writer.setHtmlSafe(gson.htmlSafe());
+        for (T value : batch) {
+            adapter.write(writer, value);
+            // JsonWriter 不缓冲，可以直接在底层 writer 上追加换行
+            buffer.write('\n');
+        }
+        return buffer.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> TypeAdapter<T> adapter(Gson gson, Type typeOfT) {
+        return (TypeAdapter<T>) gson.getAdapter(TypeToken.get(typeOfT));
+    }
+
+    private static <T> T await(ForkJoinTask<T> task) throws IOException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for chunk");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    static final class Event {
+        long id;
+        String type;
+        String user;
+        double value;
+        List<String> tags;
+    }
+
+    public static void main(String[] args) throws IOException {
+        Gson gson = new Gson();
+        Path file = Files.createTempFile("events", ".ndjson");
+        try {
+            int count = 1_000_000;
+            long start = System.nanoTime();
+            write(gson, IntStream.range(0, count).mapToObj(i -> {
+                Event event = new Event();
+                event.id = i;
+                event.type = i % 3 == 0 ? "click" : "view";
+                event.user = "user-" + (i % 9973);
+                event.value = i * 0.25;
+                event.tags = Collections.singletonList("t" + (i % 7));
+                return event;
+            }), Event.class, file, ForkJoinPool.commonPool());
+            System.out.printf("write: %d lines in %d ms%n", count, (System.nanoTime() - start) / 1_000_000);
+
+            start = System.nanoTime();
+            long lines = 0;
+            try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    GsonUtil.fromJson(line, Event.class);
+                    lines++;
+                }
+            }
+            report("serial GsonUtil.fromJson", lines, start);
+
+            int processors = Runtime.getRuntime().availableProcessors();
+            for (int parallelism = 1; parallelism <= processors; parallelism *= 2) {
+                ForkJoinPool pool = new ForkJoinPool(parallelism);
+                try {
+                    LongAdder unordered = new LongAdder();
+                    start = System.nanoTime();
+                    NdjsonCodec.<Event>read(gson, file, Event.class, pool, false, event -> unordered.increment());
+                    report("read unordered, " + parallelism + " threads", unordered.sum(), start);
+
+                    start = System.nanoTime();
+                    List<Event> ordered = readAll(gson, file, Event.class, pool);
+                    report("read ordered,   " + parallelism + " threads", ordered.size(), start);
+                } finally {
+                    pool.shutdown();
+                }
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static void report(String name, long lines, long start) {
+        long nanos = System.nanoTime() - start;
+        System.out.printf("%-32s %d lines in %d ms (%.0f lines/s)%n", name + ":", lines, nanos / 1_000_000, lines * 1e9 / nanos);
+    }
+}